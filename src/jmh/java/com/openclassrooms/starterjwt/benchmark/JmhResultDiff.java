@@ -0,0 +1,95 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Compare deux résultats JMH au format JSON (-rf json), par benchmark et jeu de paramètres : score de
+ * référence, score courant, écart en %. Un écart supérieur à la somme des marges d'erreur des deux mesures est
+ * signalé (SLOWER ou faster) selon le mode (débit ou temps par opération).
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec@jmh-diff -Djmh.baseline=benchmarks/a1b2c3d.json -Djmh.resultFile=benchmarks/e4f5a6b.json
+ * </pre>
+ * Code de sortie 1 si au moins un benchmark est significativement plus lent.
+ */
+public final class JmhResultDiff {
+
+    private JmhResultDiff() {
+    }
+
+    record Score(String mode, double score, double error, String unit) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: JmhResultDiff <baseline.json> <current.json>");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        System.out.printf(Locale.ROOT, "%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Delta");
+        int slower = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null || !before.unit().equals(now.unit())) {
+                System.out.printf(Locale.ROOT, "%-90s %14s %14.3f %9s  new (%s)%n",
+                        entry.getKey(), "-", now.score(), "", now.unit());
+                continue;
+            }
+            double delta = (now.score() - before.score()) / before.score() * 100;
+            String verdict = "";
+            if (Math.abs(now.score() - before.score()) > before.error() + now.error()) {
+                // en débit (thrpt) un score plus haut est meilleur, en temps par opération c'est l'inverse
+                boolean better = "thrpt".equals(now.mode()) == now.score() > before.score();
+                verdict = better ? "  faster" : "  SLOWER";
+                if (!better) {
+                    slower++;
+                }
+            }
+            System.out.printf(Locale.ROOT, "%-90s %14.3f %14.3f %+8.1f%%  %s%s%n",
+                    entry.getKey(), before.score(), now.score(), delta, now.unit(), verdict);
+        }
+        baseline.keySet().stream()
+                .filter(key -> !current.containsKey(key))
+                .forEach(key -> System.out.printf(Locale.ROOT, "%-90s  missing from current result%n", key));
+
+        System.out.println(slower == 0 ? "No significant regression."
+                : slower + " benchmark(s) significantly slower.");
+        System.exit(slower == 0 ? 0 : 1);
+    }
+
+    static Map<String, Score> read(File file) throws Exception {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key(run), new Score(run.path("mode").asText(), metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private static String key(JsonNode run) {
+        String name = run.path("benchmark").asText().replace("com.openclassrooms.starterjwt.", "");
+        JsonNode params = run.path("params");
+        if (params.isMissingNode() || params.isEmpty()) {
+            return name;
+        }
+        StringJoiner joiner = new StringJoiner(",", name + " [", "]");
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            joiner.add(field.getKey() + "=" + field.getValue().asText());
+        }
+        return joiner.toString();
+    }
+}
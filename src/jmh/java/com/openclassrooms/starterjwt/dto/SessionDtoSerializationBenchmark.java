@@ -0,0 +1,65 @@
+package com.openclassrooms.starterjwt.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Sérialisation JSON d'une liste de SessionDto (réponse de GET /api/session) avec un ObjectMapper configuré
+ * comme celui de Spring Boot, selon le nombre de sessions et de participants par session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionDtoSerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int sessions;
+
+    @Param({"0", "50"})
+    public int participants;
+
+    private ObjectWriter writer;
+    private List<SessionDto> dtos;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, SessionDto.class));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> users = LongStream.rangeClosed(1, participants).boxed().collect(Collectors.toList());
+        dtos = new ArrayList<>(sessions);
+        for (long id = 1; id <= sessions; id++) {
+            dtos.add(new SessionDto(id, "Session " + id, new Date(), 10L,
+                    "Enchaînements dynamiques synchronisés sur la respiration.", participants + 10, users, now, now));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(dtos);
+    }
+}
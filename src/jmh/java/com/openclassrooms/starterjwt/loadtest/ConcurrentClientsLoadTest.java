@@ -0,0 +1,121 @@
+package com.openclassrooms.starterjwt.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test de charge : N clients concurrents (un thread virtuel chacun) enchaînent des requêtes sur une instance
+ * déjà démarrée, puis débit, latences (p50/p95/p99) et répartition des statuts sont affichés.
+ * <p>
+ * Pour comparer les deux modes, lancer l'application avec VIRTUAL_THREADS=true puis false et exécuter :
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec@load-test -Dload.clients=1000
+ * mvn -Pjmh test-compile exec:exec@load-test -Dload.clients=10000
+ * </pre>
+ * Propriétés : load.url (http://localhost:8080), load.path (/api/session), load.clients (1000),
+ * load.requests (requêtes par client, 20), load.email / load.password (compte utilisé pour le token).
+ */
+public final class ConcurrentClientsLoadTest {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private ConcurrentClientsLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("load.url", "http://localhost:8080");
+        String path = System.getProperty("load.path", "/api/session");
+        int clients = Integer.getInteger("load.clients", 1000);
+        int requests = Integer.getInteger("load.requests", 20);
+        String email = System.getProperty("load.email", "yoga@studio.com");
+        String password = System.getProperty("load.password", "test!1234");
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String token = login(http, baseUrl, email, password);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+
+        long[] latencies = new long[clients * requests];
+        AtomicInteger next = new AtomicInteger();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder errors = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+
+        long began;
+        long elapsed;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < requests; r++) {
+                        long t0 = System.nanoTime();
+                        try {
+                            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                        latencies[next.getAndIncrement()] = System.nanoTime() - t0;
+                    }
+                    return null;
+                });
+            }
+            began = System.nanoTime();
+            start.countDown();
+        }
+        elapsed = System.nanoTime() - began;
+
+        long[] sorted = Arrays.copyOf(latencies, next.get());
+        Arrays.sort(sorted);
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+
+        System.out.printf("clients=%d requests=%d path=%s%n", clients, sorted.length, path);
+        System.out.printf("throughput=%.1f req/s%n", sorted.length / (elapsed / 1e9));
+        System.out.printf("latency ms p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), percentile(sorted, 1.0));
+        System.out.printf("statuses=%s errors=%d%n", byStatus, errors.sum());
+    }
+
+    private static String login(HttpClient http, String baseUrl, String email, String password) throws Exception {
+        HttpRequest login = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"%s\",\"password\":\"%s\"}".formatted(email, password)))
+                .build();
+        HttpResponse<String> response = http.send(login, HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Login failed: " + response.statusCode() + " " + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion de listes par UserMapper et TeacherMapper (code généré par MapStruct), dans les deux sens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityMapperBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private final UserMapper userMapper = new UserMapperImpl();
+    private final TeacherMapper teacherMapper = new TeacherMapperImpl();
+
+    private List<User> users;
+    private List<UserDto> userDtos;
+    private List<Teacher> teachers;
+    private List<TeacherDto> teacherDtos;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        users = new ArrayList<>(size);
+        teachers = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            users.add(User.builder().id(id).email("user" + id + "@studio.com").firstName("Prénom" + id)
+                    .lastName("Nom" + id).password("$2a$10$hash").admin(false).createdAt(now).updatedAt(now).build());
+            teachers.add(Teacher.builder().id(id).firstName("Prénom" + id).lastName("Nom" + id)
+                    .createdAt(now).updatedAt(now).build());
+        }
+        userDtos = userMapper.toDto(users);
+        teacherDtos = teacherMapper.toDto(teachers);
+    }
+
+    @Benchmark
+    public List<UserDto> usersToDto() {
+        return userMapper.toDto(users);
+    }
+
+    @Benchmark
+    public List<User> usersToEntity() {
+        return userMapper.toEntity(userDtos);
+    }
+
+    @Benchmark
+    public List<TeacherDto> teachersToDto() {
+        return teacherMapper.toDto(teachers);
+    }
+
+    @Benchmark
+    public List<Teacher> teachersToEntity() {
+        return teacherMapper.toEntity(teacherDtos);
+    }
+}
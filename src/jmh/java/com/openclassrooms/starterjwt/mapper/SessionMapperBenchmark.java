@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Conversions de SessionMapper selon le nombre de participants, hors base de données : les services sont
+ * remplacés par des implémentations en mémoire, sans coût de mock.
+ * <ul>
+ *     <li>toDto : session dont la collection users est chargée, ids lus sur les User ;</li>
+ *     <li>toEntity : professeur et participants résolus (une fois par liste), participants rattachés par référence.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionMapperBenchmark {
+
+    @Param({"0", "50", "500"})
+    public int participants;
+
+    private SessionMapper mapper;
+    private Session session;
+    private SessionDto sessionDto;
+
+    @Setup
+    public void setUp() {
+        Teacher teacher = Teacher.builder().id(10L).firstName("Margot").lastName("Delahaye").build();
+
+        SessionMapperImpl impl = new SessionMapperImpl();
+        impl.teacherService = new TeacherService(null, null, null, null) {
+            @Override
+            public Set<Long> findExistingIds(Collection<Long> ids) {
+                return new HashSet<>(ids);
+            }
+
+            @Override
+            public Teacher getReference(Long id) {
+                return teacher;
+            }
+        };
+        impl.userService = new UserService(null, null) {
+            @Override
+            public Set<Long> findExistingIds(Collection<Long> ids) {
+                return new HashSet<>(ids);
+            }
+
+            @Override
+            public User getReference(Long id) {
+                return new User().setId(id);
+            }
+        };
+        mapper = impl;
+
+        List<User> users = new ArrayList<>(participants);
+        LongStream.rangeClosed(1, participants).forEach(id -> users.add(new User().setId(id)));
+        session = Session.builder()
+                .id(1L)
+                .name("Vinyasa")
+                .date(new Date())
+                .description("Enchaînements dynamiques synchronisés sur la respiration.")
+                .capacity(participants + 10)
+                .teacher(teacher)
+                .users(users)
+                .build();
+        sessionDto = mapper.toDto(session);
+    }
+
+    @Benchmark
+    public SessionDto toDto() {
+        return mapper.toDto(session);
+    }
+
+    @Benchmark
+    public Session toEntity() {
+        return mapper.toEntity(sessionDto);
+    }
+}
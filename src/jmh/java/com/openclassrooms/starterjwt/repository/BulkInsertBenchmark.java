@@ -0,0 +1,192 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit d'insertion (lignes/s) pour la création de sessions et l'inscription d'utilisateurs en masse :
+ * une insertion par ligne avec récupération de l'id, comme le fait Hibernate avec IDENTITY, contre un lot JDBC,
+ * avec et sans rewriteBatchedStatements.
+ * <p>
+ * MySQL est lancé par Testcontainers, sauf si -Djmh.jdbcUrl=... (avec -Djmh.jdbcUser / -Djmh.jdbcPassword)
+ * désigne une base existante ; les tables du benchmark sont préfixées par bench_.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(BulkInsertBenchmark.ROWS)
+public class BulkInsertBenchmark {
+
+    static final int ROWS = 200;
+
+    private static final String INSERT_SESSION = "insert into bench_sessions "
+            + "(name, date, description, teacher_id, created_at, updated_at) values (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_USER = "insert into bench_users "
+            + "(email, first_name, last_name, password, admin, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?)";
+
+    @Param({"false", "true"})
+    public boolean rewriteBatchedStatements;
+
+    private MySQLContainer<?> mysql;
+    private Connection connection;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("jmh.jdbcUrl");
+        String user = System.getProperty("jmh.jdbcUser", "test");
+        String password = System.getProperty("jmh.jdbcPassword", "test");
+        if (url == null) {
+            mysql = new MySQLContainer<>("mysql:8.4.0").withDatabaseName("bench").withUsername(user).withPassword(password);
+            mysql.start();
+            url = mysql.getJdbcUrl();
+        }
+
+        connection = DriverManager.getConnection(
+                url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=" + rewriteBatchedStatements,
+                user, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists bench_sessions (id bigint auto_increment primary key, "
+                    + "name varchar(50) not null, date datetime not null, description varchar(2500) not null, "
+                    + "teacher_id bigint, created_at timestamp, updated_at timestamp)");
+            statement.execute("create table if not exists bench_users (id bigint auto_increment primary key, "
+                    + "email varchar(50) not null unique, first_name varchar(20) not null, last_name varchar(20) not null, "
+                    + "password varchar(120) not null, admin bit not null, created_at timestamp, updated_at timestamp)");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("truncate table bench_sessions");
+            statement.execute("truncate table bench_users");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    /** Ce que fait Hibernate avec IDENTITY : un aller-retour par ligne pour récupérer l'id. */
+    @Benchmark
+    public long sessionsRowByRow() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SESSION, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                bindSession(ps);
+                ps.executeUpdate();
+                lastId = lastKey(ps);
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    /** SessionRepositoryCustom.insertSessions : un lot, ids relus en fin de lot. */
+    @Benchmark
+    public long sessionsBatched() throws SQLException {
+        long lastId;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SESSION, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                bindSession(ps);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            lastId = lastKey(ps);
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    public long usersRowByRow() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                bindUser(ps);
+                ps.executeUpdate();
+                lastId = lastKey(ps);
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    public long usersBatched() throws SQLException {
+        long lastId;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                bindUser(ps);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            lastId = lastKey(ps);
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    private void bindSession(PreparedStatement ps) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        ps.setString(1, "Yoga " + sequence++);
+        ps.setTimestamp(2, now);
+        ps.setString(3, "Relax");
+        ps.setLong(4, 1L);
+        ps.setTimestamp(5, now);
+        ps.setTimestamp(6, now);
+    }
+
+    private void bindUser(PreparedStatement ps) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        ps.setString(1, "user" + sequence++ + "@studio.com");
+        ps.setString(2, "First");
+        ps.setString(3, "Last");
+        ps.setString(4, "$2a$10$abcdefghijklmnopqrstuv");
+        ps.setBoolean(5, false);
+        ps.setTimestamp(6, now);
+        ps.setTimestamp(7, now);
+    }
+
+    private static long lastKey(PreparedStatement ps) throws SQLException {
+        long id = 0;
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            while (keys.next()) {
+                id = keys.getLong(1);
+            }
+        }
+        return id;
+    }
+}
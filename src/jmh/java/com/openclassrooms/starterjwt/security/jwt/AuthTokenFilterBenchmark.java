@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'AuthTokenFilter par requête authentifiée : extraction du token de l'en-tête, puis le filtre complet
+ * pour un token déjà dans JwtTokenCache (cas courant) : empreinte SHA-256, lecture du cache, révocation,
+ * principal reconstruit depuis les claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthTokenFilterBenchmark {
+
+    private AuthTokenFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "keyRing", JwtKeyRing.generated("ES256", Duration.ofDays(1)));
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86_400_000);
+        jwtUtils.init();
+
+        filter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(filter, "jwtTokenCache", new JwtTokenCache(jwtUtils, 10_000, 86_400_000));
+        ReflectionTestUtils.setField(filter, "tokenRevocationList", new TokenRevocationList(null, null, 86_400_000, Clock.systemUTC()));
+        ReflectionTestUtils.setField(filter, "trustClaims", true);
+        filter.setMeterRegistry(new SimpleMeterRegistry());
+
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L).username("yoga@studio.com").firstName("Admin").lastName("Admin").admin(true).build();
+        request = new MockHttpServletRequest("GET", "/api/session");
+        request.addHeader("Authorization", "Bearer " + jwtUtils.generateJwtToken(principal));
+        response = new MockHttpServletResponse();
+
+        // premier passage : le token entre dans le cache
+        doFilterCached();
+    }
+
+    @Benchmark
+    public String parseJwt() {
+        return filter.parseJwt(request);
+    }
+
+    @Benchmark
+    public Object doFilterCached() throws Exception {
+        filter.doFilter(request, response, new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+}
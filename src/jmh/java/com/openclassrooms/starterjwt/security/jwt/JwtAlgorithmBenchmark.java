@@ -0,0 +1,74 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de signature (generateJwtToken : login, refresh) et de vérification (parseJwtClaims, validateJwtToken :
+ * chaque requête authentifiée, hors cache de JwtTokenCache) selon l'algorithme : HS512 avec secret partagé
+ * contre ES256 et EdDSA (Ed25519).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAlgorithmBenchmark {
+
+    private static final String SECRET = "cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce"
+            + "47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e";
+
+    @Param({"HS512", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtUtils jwtUtils;
+    private UserDetailsImpl principal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtKeyRing keyRing = "HS512".equals(algorithm)
+                ? JwtKeyRing.hmac(SECRET)
+                : JwtKeyRing.generated(algorithm, Duration.ofDays(1));
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "keyRing", keyRing);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86_400_000);
+        jwtUtils.init();
+
+        principal = UserDetailsImpl.builder()
+                .id(1L).username("yoga@studio.com").firstName("Admin").lastName("Admin").admin(true).build();
+        token = jwtUtils.generateJwtToken(principal);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtils.generateJwtToken(principal);
+    }
+
+    @Benchmark
+    public String verify() {
+        Claims claims = jwtUtils.parseJwtClaims(token);
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return jwtUtils.validateJwtToken(token);
+    }
+}
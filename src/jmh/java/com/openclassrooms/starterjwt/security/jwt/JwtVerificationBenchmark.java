@@ -0,0 +1,64 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de la vérification d'un token par requête authentifiée :
+ * l'ancien chemin (deux parsers reconstruits, deux vérifications HS512) contre le parser pré-construit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce"
+            + "47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e";
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "keyRing", JwtKeyRing.hmac(SECRET));
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86_400_000);
+        jwtUtils.init();
+
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L).username("yoga@studio.com").firstName("Admin").lastName("Admin").admin(true).build();
+        token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+    }
+
+    /** Reproduit l'ancien AuthTokenFilter : validateJwtToken puis getUserNameFromJwtToken. */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String rebuildParserTwice() {
+        Jwts.parser().setSigningKey(SECRET).build().parseSignedClaims(token);
+        return Jwts.parser().setSigningKey(SECRET).build().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public String prebuiltParserSinglePass() {
+        Claims claims = jwtUtils.parseJwtClaims(token);
+        return claims.getSubject();
+    }
+}
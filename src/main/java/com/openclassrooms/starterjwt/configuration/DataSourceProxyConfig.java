@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Enveloppe la DataSource avec datasource-proxy pour les écouteurs JDBC déclarés comme beans (temps par requête
+ * HTTP, traçage SQL). Sans écouteur, la DataSource est laissée telle quelle.
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourceProxy(ObjectProvider<QueryExecutionListener> queryListeners,
+                                                    ObjectProvider<MethodExecutionListener> methodListeners) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                List<QueryExecutionListener> queries = queryListeners.orderedStream().toList();
+                List<MethodExecutionListener> methods = methodListeners.orderedStream().toList();
+                if (queries.isEmpty() && methods.isEmpty()) {
+                    return bean;
+                }
+
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource).name(beanName);
+                queries.forEach(builder::listener);
+                methods.forEach(builder::methodListener);
+                // le comptage des lignes lues (SqlTracer) passe par les appels au ResultSet
+                if (!methods.isEmpty()) {
+                    builder.proxyResultSet();
+                }
+                return builder.build();
+            }
+        };
+    }
+}
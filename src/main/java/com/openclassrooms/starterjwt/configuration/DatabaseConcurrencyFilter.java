@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limite le nombre de requêtes /api traitées en même temps à la taille du pool Hikari.
+ * <p>
+ * Avec les threads virtuels, Tomcat ne borne plus la concurrence : sans limite, des milliers de requêtes
+ * attendraient une connexion dans Hikari jusqu'à son timeout. Au-delà de la limite, une requête attend un
+ * permis au plus oc.app.dbConcurrencyWaitMs, puis reçoit 503 avec Retry-After.
+ * <p>
+ * Enregistré après la chaîne Spring Security : les requêtes rejetées en 401 ne consomment pas de permis.
+ * Les requêtes /api/auth n'en consomment pas non plus : un afflux de connexions, dont chacune garderait son permis
+ * pendant le hachage BCrypt, ne doit pas faire refuser les lectures de sessions.
+ */
+@Component
+public class DatabaseConcurrencyFilter extends OncePerRequestFilter {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+    // login et inscription attendent surtout le pool de hachage, déjà borné par OffloadingPasswordEncoder
+    static final String AUTH_PATH = "/api/auth/";
+
+    private final Semaphore permits;
+    private final long waitMs;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public DatabaseConcurrencyFilter(@Value("${oc.app.dbConcurrencyLimit:${spring.datasource.hikari.maximum-pool-size:10}}") int limit,
+                                     @Value("${oc.app.dbConcurrencyWaitMs:1000}") long waitMs,
+                                     ObjectMapper objectMapper) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("oc.app.dbConcurrencyLimit must be positive: " + limit);
+        }
+        this.permits = new Semaphore(limit, true);
+        this.waitMs = waitMs;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !uri.startsWith("/api/") || uri.startsWith(AUTH_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            reject(response);
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new MessageResponse("Error: Server busy, retry later!"));
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,78 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Nombre de requêtes SQL préparées par Hibernate pendant chaque requête HTTP (yoga.hibernate.statements, tag
+ * uri), pour repérer en production un endpoint dont le nombre de requêtes dérive (N+1).
+ * <p>
+ * Les statistiques Hibernate sont globales : le comptage par requête passe par un StatementInspector, appelé à
+ * la préparation de chaque requête, et un compteur propre au thread de la requête. Les requêtes passées par
+ * JdbcTemplate (participants, export) ne sont pas comptées.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class HibernateStatementMetrics extends OncePerRequestFilter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<int[]> STATEMENTS = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public HibernateStatementMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] statements = STATEMENTS.get();
+        if (statements != null) {
+            statements[0]++;
+        }
+        return sql;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int[] statements = new int[1];
+        STATEMENTS.set(statements);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            STATEMENTS.remove();
+            DistributionSummary.builder("yoga.hibernate.statements")
+                    .description("Requêtes SQL préparées par Hibernate par requête HTTP")
+                    .baseUnit("statements")
+                    .tag("uri", uri(request))
+                    .register(meterRegistry)
+                    .record(statements[0]);
+        }
+    }
+
+    // même tag que http.server.requests : le motif de l'endpoint, jamais l'URI brute
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Temps passé dans les mappers (section "mapping" de {@link RequestTiming}), hors requêtes SQL qu'ils déclenchent.
+ */
+@Aspect
+public class MappingTimingAspect {
+
+    @Around("within(com.openclassrooms.starterjwt.mapper..*) && execution(public * *(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return joinPoint.proceed();
+        }
+        boolean outermost = timing.enterMapping();
+        long mark = outermost ? timing.mark() : 0;
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timing.exitMapping(mark);
+        }
+    }
+}
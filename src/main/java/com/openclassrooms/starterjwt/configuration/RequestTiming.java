@@ -0,0 +1,193 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Décomposition du temps d'une requête HTTP, tenue par le thread de la requête (cf. RequestTimingFilter) :
+ * authentification, base de données (nombre et durée des requêtes SQL, par empreinte), conversions des mappers
+ * et sérialisation JSON. Les sections sont exclusives : le temps SQL passé pendant l'authentification ou un
+ * mapper n'est compté qu'en base. Le reste est le temps applicatif.
+ * <p>
+ * Pendant la requête, seuls le texte des requêtes SQL (déjà tenu par le driver) et leur durée sont conservés ; les
+ * empreintes ne sont calculées que pour une requête hors budget, par {@link #fingerprints()}.
+ * <p>
+ * Hors requête HTTP chronométrée, {@link #current()} retourne null et les points de mesure ne font rien.
+ */
+public final class RequestTiming {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    // au-delà, les requêtes SQL sont comptées dans le total mais ni conservées ni regroupées
+    private static final int MAX_STATEMENTS = 200;
+    private static final int MAX_FINGERPRINTS = 50;
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final long startNanos = System.nanoTime();
+    private long endNanos;
+    private long authNanos;
+    private long dbNanos;
+    private int dbStatements;
+    private long mappingNanos;
+    private long serializationNanos;
+    private int mappingDepth;
+    private long statementStart;
+    private final List<Statement> statements = new ArrayList<>();
+
+    private record Statement(String sql, long nanos) {
+    }
+
+    /**
+     * Requête SQL identique à la valeur des paramètres près, avec son nombre d'exécutions et leur durée totale.
+     */
+    public record SqlFingerprint(String sql, int count, long nanos) {
+
+        SqlFingerprint add(long elapsed) {
+            return new SqlFingerprint(sql, count + 1, nanos + elapsed);
+        }
+    }
+
+    static RequestTiming begin() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    void end() {
+        CURRENT.remove();
+        endNanos = System.nanoTime();
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Point de départ d'une section : l'horloge diminuée du temps SQL déjà compté, ce qui exclut de la section
+     * le temps SQL écoulé entre-temps.
+     */
+    public long mark() {
+        return System.nanoTime() - dbNanos;
+    }
+
+    public void addAuth(long mark) {
+        authNanos += mark() - mark;
+    }
+
+    public void addSerialization(long mark) {
+        serializationNanos += mark() - mark;
+    }
+
+    /**
+     * Début d'une conversion ; seule la plus externe est chronométrée, un mapper pouvant en appeler un autre.
+     *
+     * @return true si c'est la conversion la plus externe
+     */
+    boolean enterMapping() {
+        return mappingDepth++ == 0;
+    }
+
+    void exitMapping(long mark) {
+        if (--mappingDepth == 0) {
+            mappingNanos += mark() - mark;
+        }
+    }
+
+    void statementStarted() {
+        statementStart = System.nanoTime();
+    }
+
+    void statementEnded(String sql) {
+        long elapsed = System.nanoTime() - statementStart;
+        dbNanos += elapsed;
+        dbStatements++;
+        if (statements.size() < MAX_STATEMENTS) {
+            statements.add(new Statement(sql, elapsed));
+        }
+    }
+
+    /**
+     * Texte SQL sans valeurs littérales ni espaces superflus, et listes IN réduites à une seule marque : deux
+     * exécutions de la même requête ont la même empreinte quels que soient leurs paramètres.
+     */
+    static String fingerprint(String sql) {
+        String normalized = STRING.matcher(sql).replaceAll("?");
+        normalized = NUMBER.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("in (...)");
+        return SPACES.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    public long totalNanos() {
+        return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    public long authNanos() {
+        return authNanos;
+    }
+
+    public long dbNanos() {
+        return dbNanos;
+    }
+
+    public int dbStatements() {
+        return dbStatements;
+    }
+
+    public long mappingNanos() {
+        return mappingNanos;
+    }
+
+    public long serializationNanos() {
+        return serializationNanos;
+    }
+
+    public long appNanos() {
+        return Math.max(0, totalNanos() - authNanos - dbNanos - mappingNanos - serializationNanos);
+    }
+
+    /**
+     * Regroupe les requêtes SQL conservées par empreinte ; à n'appeler que pour une requête à publier.
+     *
+     * @return les empreintes SQL, de la plus coûteuse à la moins coûteuse
+     */
+    public List<SqlFingerprint> fingerprints() {
+        Map<String, SqlFingerprint> fingerprints = new LinkedHashMap<>();
+        for (Statement statement : statements) {
+            String fingerprint = fingerprint(statement.sql());
+            SqlFingerprint known = fingerprints.get(fingerprint);
+            if (known != null) {
+                fingerprints.put(fingerprint, known.add(statement.nanos()));
+            } else if (fingerprints.size() < MAX_FINGERPRINTS) {
+                fingerprints.put(fingerprint, new SqlFingerprint(fingerprint, 1, statement.nanos()));
+            }
+        }
+        List<SqlFingerprint> list = new ArrayList<>(fingerprints.values());
+        list.sort(Comparator.comparingLong(SqlFingerprint::nanos).reversed());
+        return list;
+    }
+
+    /**
+     * Valeur de l'en-tête Server-Timing (W3C), durées en millisecondes ; total mesuré jusqu'à cet instant. L'en-tête
+     * précède le corps : la sérialisation, mesurée pendant l'écriture du corps, n'y figure pas.
+     */
+    public String serverTiming() {
+        return String.format(Locale.ROOT,
+                "auth;dur=%.3f, db;dur=%.3f;desc=\"%d statements\", mapping;dur=%.3f, app;dur=%.3f, total;dur=%.3f",
+                millis(authNanos), millis(dbNanos), dbStatements, millis(mappingNanos), millis(appNanos()),
+                millis(totalNanos()));
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
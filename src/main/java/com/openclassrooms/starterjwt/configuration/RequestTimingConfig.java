@@ -0,0 +1,46 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Budget par requête et en-tête Server-Timing (oc.app.requestTimingEnabled, inactif par défaut). Actif, l'écouteur
+ * SQL fait envelopper la DataSource (cf. DataSourceProxyConfig) : chaque requête SQL passe par le proxy.
+ */
+@Configuration
+@ConditionalOnProperty(name = "oc.app.requestTimingEnabled", havingValue = "true")
+public class RequestTimingConfig {
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE + 3)
+    public RequestTimingFilter requestTimingFilter(SlowRequestLog slowRequestLog,
+                                                   @Value("${oc.app.requestBudgetMs:500}") long budgetMs) {
+        return new RequestTimingFilter(slowRequestLog, budgetMs);
+    }
+
+    @Bean
+    public MappingTimingAspect mappingTimingAspect() {
+        return new MappingTimingAspect();
+    }
+
+    @Bean
+    public WebMvcConfigurer timedJsonConverter() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.replaceAll(converter -> converter.getClass() == MappingJackson2HttpMessageConverter.class
+                        ? new TimedJsonHttpMessageConverter(((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+                        : converter);
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chronomètre chaque requête HTTP de bout en bout, avant la chaîne Spring Security (donc avant AuthTokenFilter),
+ * et renvoie sa décomposition dans l'en-tête Server-Timing. Une requête plus longue que oc.app.requestBudgetMs
+ * est conservée dans {@link SlowRequestLog}.
+ * <p>
+ * Écoute aussi les requêtes SQL de la DataSource (cf. DataSourceProxyConfig) pour leur nombre, leur durée et
+ * leurs empreintes.
+ */
+public class RequestTimingFilter extends OncePerRequestFilter implements QueryExecutionListener {
+
+    private final SlowRequestLog slowRequestLog;
+    private final long budgetNanos;
+
+    public RequestTimingFilter(SlowRequestLog slowRequestLog, long budgetMs) {
+        this.slowRequestLog = slowRequestLog;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Instant startedAt = Instant.now();
+        RequestTiming timing = RequestTiming.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            timing.end();
+            // réponse sans corps JSON ; sinon l'en-tête a été posé avant l'écriture du corps (TimedJsonHttpMessageConverter)
+            if (!response.isCommitted()) {
+                response.setHeader(RequestTiming.SERVER_TIMING, timing.serverTiming());
+            }
+            if (timing.totalNanos() >= budgetNanos) {
+                slowRequestLog.add(SlowRequest.of(startedAt, request.getMethod(), request.getRequestURI(),
+                        pattern(request), response.getStatus(), MDC.get(RequestIdFilter.MDC_KEY), timing));
+            }
+        }
+    }
+
+    private static String pattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : null;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.statementStarted();
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.statementEnded(queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery());
+        }
+    }
+}
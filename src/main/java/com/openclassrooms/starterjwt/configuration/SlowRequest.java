@@ -0,0 +1,41 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Requête HTTP hors budget, telle que publiée par /api/admin/slow-requests ; durées en millisecondes.
+ */
+public record SlowRequest(Instant startedAt,
+                          String method,
+                          String path,
+                          String pattern,
+                          int status,
+                          String requestId,
+                          double totalMs,
+                          double authMs,
+                          double dbMs,
+                          int dbStatements,
+                          double mappingMs,
+                          double serializationMs,
+                          double appMs,
+                          List<Sql> sql) {
+
+    public record Sql(String fingerprint, int count, double totalMs) {
+    }
+
+    static SlowRequest of(Instant startedAt, String method, String path, String pattern, int status, String requestId,
+                          RequestTiming timing) {
+        return new SlowRequest(startedAt, method, path, pattern, status, requestId,
+                RequestTiming.millis(timing.totalNanos()),
+                RequestTiming.millis(timing.authNanos()),
+                RequestTiming.millis(timing.dbNanos()),
+                timing.dbStatements(),
+                RequestTiming.millis(timing.mappingNanos()),
+                RequestTiming.millis(timing.serializationNanos()),
+                RequestTiming.millis(timing.appNanos()),
+                timing.fingerprints().stream()
+                        .map(f -> new Sql(f.sql(), f.count(), RequestTiming.millis(f.nanos())))
+                        .toList());
+    }
+}
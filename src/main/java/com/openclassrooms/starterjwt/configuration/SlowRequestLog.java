@@ -0,0 +1,44 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tampon circulaire des dernières requêtes hors budget (oc.app.slowRequestBufferSize) : l'ajout écrase la plus
+ * ancienne, sans verrou ni allocation autre que l'entrée elle-même. Propre à l'instance, perdu au redémarrage.
+ */
+@Component
+public class SlowRequestLog {
+
+    private final AtomicReferenceArray<SlowRequest> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    public SlowRequestLog(@Value("${oc.app.slowRequestBufferSize:100}") int size) {
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    public void add(SlowRequest request) {
+        slots.set((int) (next.getAndIncrement() % slots.length()), request);
+    }
+
+    /**
+     * @return les requêtes conservées, de la plus récente à la plus ancienne
+     */
+    public List<SlowRequest> recent() {
+        long last = next.get();
+        int size = slots.length();
+        List<SlowRequest> list = new ArrayList<>(size);
+        for (long i = last - 1; i >= Math.max(0, last - size); i--) {
+            SlowRequest request = slots.get((int) (i % size));
+            if (request != null) {
+                list.add(request);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Traçage SQL, actif seulement avec oc.app.sqlTraceEnabled=true. Le SqlTracer est branché sur la DataSource
+ * par DataSourceProxyConfig.
+ */
+@Configuration
+@ConditionalOnProperty(name = "oc.app.sqlTraceEnabled", havingValue = "true")
+public class SqlTraceConfig {
+
+    @Bean
+    public SqlTracer sqlTracer(@Value("${oc.app.sqlTraceSampleRate:0.01}") double sampleRate,
+                               @Value("${oc.app.sqlTraceSlowQueryMs:200}") long slowQueryMs,
+                               @Value("${oc.app.sqlTraceRepeatThreshold:5}") int repeatThreshold,
+                               @Value("${oc.app.sqlTraceMaxStatements:200}") int maxStatements) {
+        return new SqlTracer(sampleRate, slowQueryMs, repeatThreshold, maxStatements);
+    }
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public SqlTraceFilter sqlTraceFilter(SqlTracer sqlTracer) {
+        return new SqlTraceFilter(sqlTracer);
+    }
+}
@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Ouvre et ferme la trace SQL de chaque requête HTTP échantillonnée, juste après RequestIdFilter.
+ */
+public class SqlTraceFilter extends OncePerRequestFilter {
+
+    private final SqlTracer sqlTracer;
+
+    public SqlTraceFilter(SqlTracer sqlTracer) {
+        this.sqlTracer = sqlTracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlTracer.RequestTrace trace = sqlTracer.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            sqlTracer.end(trace);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.MDC;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Traçage SQL à la demande (oc.app.sqlTraceEnabled), branché sur la DataSource par datasource-proxy.
+ * <ul>
+ *     <li>toute requête SQL plus lente que oc.app.sqlTraceSlowQueryMs est signalée, quelle que soit la requête HTTP ;</li>
+ *     <li>une requête HTTP sur oc.app.sqlTraceSampleRate est tracée en détail : texte, nombre de paramètres, lignes
+ *     lues ou modifiées et durée de chaque requête SQL, puis les requêtes identiques répétées au moins
+ *     oc.app.sqlTraceRepeatThreshold fois (motif N+1).</li>
+ * </ul>
+ * Le rapport est écrit à la fin de la requête HTTP, sur le logger "sql.trace", asynchrone (cf. logback-spring.xml).
+ */
+@Slf4j(topic = "sql.trace")
+public class SqlTracer implements QueryExecutionListener, MethodExecutionListener {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final double sampleRate;
+    private final long slowQueryMs;
+    private final int repeatThreshold;
+    private final int maxStatements;
+    private final Consumer<RequestTrace> reporter;
+
+    public SqlTracer(double sampleRate, long slowQueryMs, int repeatThreshold, int maxStatements) {
+        this(sampleRate, slowQueryMs, repeatThreshold, maxStatements, null);
+    }
+
+    SqlTracer(double sampleRate, long slowQueryMs, int repeatThreshold, int maxStatements, Consumer<RequestTrace> reporter) {
+        this.sampleRate = sampleRate;
+        this.slowQueryMs = slowQueryMs;
+        this.repeatThreshold = repeatThreshold;
+        this.maxStatements = maxStatements;
+        this.reporter = reporter != null ? reporter : this::log;
+    }
+
+    /**
+     * Début d'une requête HTTP : tirage de l'échantillon.
+     *
+     * @return la trace ouverte, ou null si la requête n'est pas échantillonnée
+     */
+    public RequestTrace begin() {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        RequestTrace trace = new RequestTrace(MDC.get(RequestIdFilter.MDC_KEY), maxStatements);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public void end(RequestTrace trace) {
+        CURRENT.remove();
+        if (trace != null) {
+            reporter.accept(trace);
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String sql = queryInfoList.size() == 1 ? queryInfoList.get(0).getQuery()
+                : queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        int binds = 0;
+        for (QueryInfo queryInfo : queryInfoList) {
+            for (List<?> parameters : queryInfo.getParametersList()) {
+                binds += parameters.size();
+            }
+        }
+        long durationMs = execInfo.getElapsedTime();
+
+        if (durationMs >= slowQueryMs) {
+            log.warn("slow query requestId={} durationMs={} binds={} batch={} sql=\"{}\"",
+                    MDC.get(RequestIdFilter.MDC_KEY), durationMs, binds, execInfo.getBatchSize(), sql);
+        }
+
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            TracedStatement statement = new TracedStatement(sql, binds, durationMs, updateCount(execInfo.getResult()));
+            trace.add(statement);
+            if (execInfo.getResult() instanceof ResultSet) {
+                // lignes comptées à la lecture (cf. afterMethod)
+                trace.reading.put(execInfo.getStatement(), statement);
+            }
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    /**
+     * Compte les lignes lues : chaque ResultSet.next() qui retourne true.
+     */
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null || !(executionContext.getTarget() instanceof ResultSet resultSet)
+                || !Boolean.TRUE.equals(executionContext.getResult())
+                || !"next".equals(executionContext.getMethod().getName())) {
+            return;
+        }
+        try {
+            TracedStatement statement = trace.reading.get(resultSet.getStatement());
+            if (statement != null) {
+                statement.rows++;
+            }
+        } catch (SQLException e) {
+            // ResultSet déjà fermé : la ligne n'est pas comptée
+        }
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return 0;
+    }
+
+    private void log(RequestTrace trace) {
+        log.info("sql trace requestId={} statements={} durationMs={}",
+                trace.requestId, trace.count, trace.totalDurationMs);
+        for (TracedStatement statement : trace.statements) {
+            log.info("sql requestId={} durationMs={} rows={} binds={} sql=\"{}\"",
+                    trace.requestId, statement.durationMs, statement.rows, statement.binds, statement.sql);
+        }
+        trace.repeated(repeatThreshold).forEach((sql, count) ->
+                log.warn("N+1 suspect requestId={} executions={} sql=\"{}\"", trace.requestId, count, sql));
+    }
+
+    /**
+     * Requêtes SQL d'une requête HTTP. Le détail est limité à oc.app.sqlTraceMaxStatements requêtes ; le
+     * décompte par texte, qui sert à repérer les répétitions, porte sur toutes.
+     */
+    public static final class RequestTrace {
+
+        final String requestId;
+        final List<TracedStatement> statements = new ArrayList<>();
+        final Map<String, Integer> executions = new LinkedHashMap<>();
+        // requêtes dont le ResultSet est en cours de lecture, par Statement (identité)
+        final Map<Statement, TracedStatement> reading = new IdentityHashMap<>();
+        private final int maxStatements;
+        int count;
+        long totalDurationMs;
+
+        RequestTrace(String requestId, int maxStatements) {
+            this.requestId = requestId;
+            this.maxStatements = maxStatements;
+        }
+
+        void add(TracedStatement statement) {
+            count++;
+            totalDurationMs += statement.durationMs;
+            executions.merge(statement.sql, 1, Integer::sum);
+            if (statements.size() < maxStatements) {
+                statements.add(statement);
+            }
+        }
+
+        /**
+         * @return nombre d'exécutions par texte SQL, pour ceux exécutés au moins {@code threshold} fois
+         */
+        Map<String, Integer> repeated(int threshold) {
+            Map<String, Integer> repeated = new LinkedHashMap<>();
+            executions.forEach((sql, executed) -> {
+                if (executed >= threshold) {
+                    repeated.put(sql, executed);
+                }
+            });
+            return repeated;
+        }
+    }
+
+    static final class TracedStatement {
+
+        final String sql;
+        final int binds;
+        final long durationMs;
+        long rows;
+
+        TracedStatement(String sql, int binds, long durationMs, long rows) {
+            this.sql = sql;
+            this.binds = binds;
+            this.durationMs = durationMs;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Convertisseur JSON de Spring MVC qui chronomètre la sérialisation (section "serialization" de
+ * {@link RequestTiming}).
+ * <p>
+ * Le corps est écrit directement dans la réponse, sans copie en mémoire : l'en-tête Server-Timing est posé juste
+ * avant, avec les sections connues à cet instant. La mesure comprend l'écriture dans le tampon de la réponse, et
+ * donc l'envoi sur le réseau au-delà de sa taille.
+ */
+public class TimedJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public TimedJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+
+        outputMessage.getHeaders().set(RequestTiming.SERVER_TIMING, timing.serverTiming());
+        long mark = timing.mark();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            timing.addSerialization(mark);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.configuration.SlowRequestLog;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Diagnostic de l'instance, réservé aux administrateurs.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    private final SlowRequestLog slowRequestLog;
+
+    public AdminController(SlowRequestLog slowRequestLog) {
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    /**
+     * Dernières requêtes hors budget (oc.app.requestBudgetMs) de cette instance, de la plus récente à la plus
+     * ancienne, avec leur décomposition et leurs empreintes SQL.
+     */
+    @GetMapping("slow-requests")
+    public ResponseEntity<?> slowRequests() {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(this.slowRequestLog.recent());
+    }
+
+    private boolean isAdmin() {
+        UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return Boolean.TRUE.equals(userDetails.getAdmin());
+    }
+}
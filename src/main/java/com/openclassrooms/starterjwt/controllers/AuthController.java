@@ -2,24 +2,43 @@ package com.openclassrooms.starterjwt.controllers;
 
 
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.RefreshTokenRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.security.jwt.JwtKeyRing;
 import com.openclassrooms.starterjwt.services.AuthService;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
+    /**
+     * Les clés publiques changent au plus à chaque rotation : les vérificateurs peuvent garder le JWKS en cache
+     * et ne le recharger que sur un kid inconnu.
+     */
+    private static final CacheControl JWKS_CACHE_CONTROL = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     private final AuthService authService;
+    private final JwtKeyRing jwtKeyRing;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, JwtKeyRing jwtKeyRing) {
         this.authService = authService;
+        this.jwtKeyRing = jwtKeyRing;
+    }
+
+    @GetMapping(value = "/jwks", produces = "application/jwk-set+json")
+    public ResponseEntity<String> jwks() {
+        return ResponseEntity.ok().cacheControl(JWKS_CACHE_CONTROL).body(jwtKeyRing.jwks());
     }
 
     @PostMapping("/login")
@@ -27,6 +46,11 @@ public class AuthController {
         return ResponseEntity.ok(this.authService.login(loginRequest));
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtResponse> refresh(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        return ResponseEntity.ok(this.authService.refresh(refreshTokenRequest));
+    }
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
         MessageResponse response = this.authService.register(signUpRequest);
@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Validateurs HTTP (ETag faible, Last-Modified) dérivés des colonnes updatedAt, pour
+ * {@link org.springframework.web.context.request.WebRequest#checkNotModified(String, long)}.
+ * <p>
+ * Les colonnes updated_at sont en TIMESTAMP(6) : à la seconde, deux écritures dans la même seconde, sans changement
+ * du nombre de lignes, donneraient le même ETag et un 304 périmé. ddl-auto ne modifiant pas une colonne existante,
+ * une base antérieure est migrée par sql/upgrade_updated_at_timestamp6.sql.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * ETag faible d'une ressource : son id et sa date de modification à la microseconde.
+     */
+    static String etag(Object id, LocalDateTime updatedAt) {
+        return "W/\"" + id + "-" + micros(updatedAt) + "\"";
+    }
+
+    /**
+     * ETag faible d'une collection : nombre de lignes et dernière modification. Une suppression change le nombre,
+     * une création ou une modification la date.
+     */
+    static String etag(String collection, long count, LocalDateTime lastModified) {
+        return "W/\"" + collection + "-" + count + "-" + micros(lastModified) + "\"";
+    }
+
+    /**
+     * @return la date en millisecondes epoch, ou -1 (ignorée par checkNotModified) si elle est inconnue
+     */
+    static long lastModified(LocalDateTime updatedAt) {
+        return updatedAt == null ? -1 : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long micros(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return 0;
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+}
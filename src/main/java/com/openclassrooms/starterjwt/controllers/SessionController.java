@@ -1,13 +1,32 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.request.ParticipationBatchRequest;
+import com.openclassrooms.starterjwt.payload.request.SessionBatchRequest;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.repository.LongArrayList;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionPage;
 import com.openclassrooms.starterjwt.services.SessionService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import lombok.extern.log4j.Log4j2;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,52 +34,133 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/session")
-@Log4j2
+@Slf4j
 public class SessionController {
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    // sans vidage après chaque session : le tampon de la réponse est envoyé quand il est plein
+    private final ObjectWriter exportWriter;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             ObjectMapper objectMapper) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.exportWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
+    /**
+     * Répond 304 sans lire les participants ni sérialiser quand le client a déjà la version courante.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") Long id) {
-        Session session = this.sessionService.getById(id);
+    public ResponseEntity<?> findById(@PathVariable("id") Long id, WebRequest request) {
+        SessionView session = this.sessionService.getById(id);
 
         if (session == null) {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+        if (request.checkNotModified(ConditionalGet.etag(session.id(), session.updatedAt()),
+                ConditionalGet.lastModified(session.updatedAt()))) {
+            return null;
+        }
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(this.sessionMapper.fromView(session));
     }
 
+    /**
+     * Sans paramètre, retourne une liste (compatibilité) bornée à oc.app.sessionListMaxSize sessions ; au-delà,
+     * un en-tête Link renvoie vers la page suivante et vers /export. Dès qu'un paramètre de pagination ou de
+     * filtre est présent, retourne une page {items, nextCursor} triée par (date, id). Répond 304 avant toute
+     * lecture des sessions si la table n'a pas changé depuis la version du client.
+     */
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(value = "cursor", required = false) String cursor,
+                                     @RequestParam(value = "limit", required = false) Integer limit,
+                                     @RequestParam(value = "from", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                     @RequestParam(value = "to", required = false)
+                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                     @RequestParam(value = "teacherId", required = false) Long teacherId,
+                                     WebRequest request) {
+        // validateurs de toute la table : une liste ou une page ne peut changer que si la table change
+        SessionRepository.TableVersion version = this.sessionService.findTableVersion();
+        if (request.checkNotModified(ConditionalGet.etag("sessions", version.getCount(), version.getLastModified()),
+                ConditionalGet.lastModified(version.getLastModified()))) {
+            return null;
+        }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+        if (cursor == null && limit == null && from == null && to == null && teacherId == null) {
+            SessionPage sessions = this.sessionService.findAll();
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+            if (sessions.nextCursor() != null) {
+                // liste tronquée : la suite par le curseur, ou tout d'un bloc par l'export
+                response.header(HttpHeaders.LINK,
+                        "</api/session?cursor=" + sessions.nextCursor() + ">; rel=\"next\"",
+                        "</api/session/export>; rel=\"alternate\"; type=\"" + MediaType.APPLICATION_NDJSON_VALUE + "\"");
+            }
+            return response.body(this.sessionMapper.fromViews(sessions.sessions()));
+        }
+
+        SessionPage page = this.sessionService.findPage(cursor, limit, from, to, teacherId);
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(new SessionPageDto(this.sessionMapper.fromViews(page.sessions()), page.nextCursor()));
+    }
+
+    /**
+     * Export de toutes les sessions en NDJSON (une session par ligne), écrit sur la réponse à mesure que les
+     * lignes sont lues : la mémoire utilisée ne dépend pas du nombre de sessions. L'écriture se fait dans le
+     * thread de la requête, qui garde sa place dans la limite de concurrence tant que le curseur est ouvert.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        try (JsonGenerator generator = this.exportWriter.createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            this.sessionService.forEachSession((session, userIds) -> {
+                this.exportWriter.writeValue(generator, this.sessionMapper.fromView(session, LongArrayList.of(userIds)));
+                generator.writeRaw('\n');
+            });
+        }
     }
 
     @PostMapping()
     public ResponseEntity<?> create(@Valid @RequestBody SessionDto sessionDto) {
-        log.info(sessionDto);
-
         Session session = this.sessionService.create(this.sessionMapper.toEntity(sessionDto));
 
-        log.info(session);
+        log.debug("Session {} created for teacher {}", session.getId(), sessionDto.getTeacher_id());
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
+    /**
+     * Création en masse, réservée aux administrateurs.
+     */
+    @PostMapping("batch")
+    public ResponseEntity<?> createAll(@Valid @RequestBody SessionBatchRequest request) {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        List<Session> sessions = this.sessionService.createAll(this.sessionMapper.toEntity(request.getSessions()));
+
+        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+    }
+
     @PutMapping("{id}")
     public ResponseEntity<?> update(@PathVariable("id") Long id, @Valid @RequestBody SessionDto sessionDto) {
         Session session = this.sessionService.update(id, this.sessionMapper.toEntity(sessionDto));
@@ -84,10 +184,27 @@ public class SessionController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Inscriptions en masse, réservées aux administrateurs ; chaque inscription reçoit son propre statut.
+     */
+    @PostMapping("participate")
+    public ResponseEntity<?> participateAll(@Valid @RequestBody ParticipationBatchRequest request) {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok().body(this.sessionService.participateAll(request));
+    }
+
     @DeleteMapping("{id}/participate/{userId}")
     public ResponseEntity<?> noLongerParticipate(@PathVariable("id") Long id, @PathVariable("userId") Long userId) {
         this.sessionService.noLongerParticipate(id, userId);
 
         return ResponseEntity.ok().build();
     }
+
+    private boolean isAdmin() {
+        UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return Boolean.TRUE.equals(userDetails.getAdmin());
+    }
 }
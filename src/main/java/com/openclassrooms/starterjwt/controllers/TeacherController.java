@@ -1,44 +1,58 @@
 package com.openclassrooms.starterjwt.controllers;
 
-import com.openclassrooms.starterjwt.mapper.TeacherMapper;
-import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.services.JsonSnapshot;
 import com.openclassrooms.starterjwt.services.TeacherService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/teacher")
 public class TeacherController {
-    private final TeacherMapper teacherMapper;
     private final TeacherService teacherService;
 
 
-    public TeacherController(TeacherService teacherService,
-                             TeacherMapper teacherMapper) {
-        this.teacherMapper = teacherMapper;
+    public TeacherController(TeacherService teacherService) {
         this.teacherService = teacherService;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") Long id) {
-        Teacher teacher = this.teacherService.findById(id);
+    public ResponseEntity<?> findById(@PathVariable("id") Long id, WebRequest request) {
+        TeacherDto teacher = this.teacherService.findById(id);
 
         if (teacher == null) {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teacher));
+        if (request.checkNotModified(ConditionalGet.etag(teacher.getId(), teacher.getUpdatedAt()),
+                ConditionalGet.lastModified(teacher.getUpdatedAt()))) {
+            return null;
+        }
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(teacher);
     }
 
+    /**
+     * La liste est servie depuis sa forme JSON déjà sérialisée et mise en cache, avec l'empreinte de ce contenu
+     * comme ETag fort.
+     */
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Teacher> teachers = this.teacherService.findAll();
+    public ResponseEntity<?> findAll(WebRequest request) {
+        JsonSnapshot teachers = this.teacherService.findAllAsJson();
+
+        if (request.checkNotModified(teachers.etag())) {
+            return null;
+        }
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(teachers.body());
     }
 }
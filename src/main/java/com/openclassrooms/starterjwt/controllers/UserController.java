@@ -1,8 +1,9 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.mapper.UserMapper;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserView;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/user")
@@ -26,14 +28,19 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") Long id) {
-        User user = this.userService.findById(id);
+    public ResponseEntity<?> findById(@PathVariable("id") Long id, WebRequest request) {
+        UserView user = this.userService.findById(id);
 
         if (user == null) {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok().body(this.userMapper.toDto(user));
+        if (request.checkNotModified(ConditionalGet.etag(user.id(), user.updatedAt()),
+                ConditionalGet.lastModified(user.updatedAt()))) {
+            return null;
+        }
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(this.userMapper.fromView(user));
     }
 
     @DeleteMapping("{id}")
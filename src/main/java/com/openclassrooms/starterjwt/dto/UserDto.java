@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.NonNull;
 
 import java.time.LocalDateTime;
@@ -34,6 +35,7 @@ public class UserDto {
 
     @JsonIgnore
     @Size(max = 120)
+    @ToString.Exclude
     private String password;
 
     private LocalDateTime createdAt;
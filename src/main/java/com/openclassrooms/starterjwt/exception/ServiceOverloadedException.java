@@ -0,0 +1,18 @@
+package com.openclassrooms.starterjwt.exception;
+
+/**
+ * Levée quand une ressource bornée (pool, file d'attente) est saturée : traduite en 503 avec Retry-After.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
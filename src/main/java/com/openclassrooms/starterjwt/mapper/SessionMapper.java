@@ -2,41 +2,232 @@ package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.LongArrayList;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.Hibernate;
+import org.mapstruct.Context;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
-@Mapper(componentModel = "spring", uses = {UserService.class}, imports = {Arrays.class, Collectors.class, Session.class, User.class, Collections.class, Optional.class})
+@Mapper(componentModel = "spring", uses = {UserService.class}, imports = {LongArrayList.class, Arrays.class, Collectors.class, Session.class, User.class, Collections.class, Optional.class})
 public abstract class SessionMapper implements EntityMapper<SessionDto, Session> {
 
+    // conversions chronométrées : méthodes écrites à la main, celles générées par MapStruct ne portent pas l'annotation
+    static final String MAPPER_TIMER = "yoga.session.mapper";
+
     @Autowired
     TeacherService teacherService;
     @Autowired
     UserService userService;
+    @Autowired
+    SessionService sessionService;
 
     @Mappings({
-            @Mapping(source = "description", target = "description"),
-            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(source = "sessionDto.description", target = "description"),
+            @Mapping(target = "teacher", expression = "java(references.teacher())"),
+            @Mapping(target = "users", expression = "java(references.users())"),
     })
-    public abstract Session toEntity(SessionDto sessionDto);
+    abstract Session toEntity(SessionDto sessionDto, @Context References references);
+
+    /**
+     * Le professeur et les participants sont résolus en une requête par type ; les participants sont
+     * rattachés par référence, sans être chargés.
+     *
+     * @throws IllegalArgumentException si des ids ne correspondent à aucun professeur ou utilisateur
+     */
+    @Override
+    @Timed(MAPPER_TIMER)
+    public Session toEntity(SessionDto sessionDto) {
+        if (sessionDto == null) {
+            return null;
+        }
+        return toEntity(List.of(sessionDto)).get(0);
+    }
+
+    /**
+     * Professeurs et participants de toute la liste sont résolus ensemble : une requête par type, quelle que
+     * soit la taille de la liste. Tous les ids inconnus sont signalés dans la même erreur.
+     *
+     * @throws IllegalArgumentException si des ids ne correspondent à aucun professeur ou utilisateur
+     */
+    @Override
+    @Timed(MAPPER_TIMER)
+    public List<Session> toEntity(List<SessionDto> sessionDtos) {
+        if (sessionDtos == null) {
+            return null;
+        }
+
+        Set<Long> teacherIds = sessionDtos.stream()
+                .filter(Objects::nonNull)
+                .map(SessionDto::getTeacher_id)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<Long> userIds = sessionDtos.stream()
+                .filter(Objects::nonNull)
+                .flatMap(sessionDto -> userIds(sessionDto).stream())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Set<Long> teachers = teacherIds.isEmpty() ? Collections.emptySet()
+                : this.teacherService.findExistingIds(teacherIds);
+        Set<Long> existing = this.userService.findExistingIds(userIds);
+
+        List<String> unknown = new ArrayList<>();
+        teacherIds.stream()
+                .filter(id -> !teachers.contains(id))
+                .forEach(id -> unknown.add("teacher " + id));
+        List<Long> unknownUserIds = userIds.stream()
+                .filter(id -> !existing.contains(id))
+                .collect(Collectors.toList());
+        if (!unknownUserIds.isEmpty()) {
+            unknown.add("users " + unknownUserIds);
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Error: Unknown " + String.join(", ", unknown) + "!");
+        }
+
+        List<Session> list = new ArrayList<>(sessionDtos.size());
+        for (SessionDto sessionDto : sessionDtos) {
+            if (sessionDto == null) {
+                list.add(null);
+                continue;
+            }
+            Teacher teacher = sessionDto.getTeacher_id() != null
+                    ? this.teacherService.getReference(sessionDto.getTeacher_id())
+                    : null;
+            List<User> users = userIds(sessionDto).stream()
+                    .map(this.userService::getReference)
+                    .collect(Collectors.toList());
+            list.add(toEntity(sessionDto, new References(teacher, users)));
+        }
+        return list;
+    }
+
+    private static List<Long> userIds(SessionDto sessionDto) {
+        return Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream()
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    record References(Teacher teacher, List<User> users) {
+    }
 
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(source = "session.teacher.id", target = "teacher_id"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
+            @Mapping(target = "users", expression = "java(participantIds(session, participants))"),
+    })
+    abstract SessionDto toDto(Session session, @Context Map<Long, List<Long>> participants);
+
+    @Override
+    @Timed(MAPPER_TIMER)
+    public SessionDto toDto(Session session) {
+        if (session == null) {
+            return null;
+        }
+        return toDto(session, loadParticipantIds(List.of(session)));
+    }
+
+    /**
+     * Les ids des participants de toute la liste sont lus en une seule requête, sans charger les User.
+     */
+    @Override
+    @Timed(MAPPER_TIMER)
+    public List<SessionDto> toDto(List<Session> sessions) {
+        if (sessions == null) {
+            return null;
+        }
+        Map<Long, List<Long>> participants = loadParticipantIds(sessions);
+
+        List<SessionDto> list = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            list.add(toDto(session, participants));
+        }
+        return list;
+    }
+
+    @Mappings({
+            @Mapping(source = "view.teacherId", target = "teacher_id"),
+            @Mapping(target = "users", expression = "java(participants.getOrDefault(view.id(), LongArrayList.empty()))"),
+    })
+    abstract SessionDto fromView(SessionView view, @Context Map<Long, List<Long>> participants);
+
+    /**
+     * Session et ids de ses participants déjà lus (export en flux).
+     */
+    @Mappings({
+            @Mapping(source = "view.teacherId", target = "teacher_id"),
+            @Mapping(source = "users", target = "users"),
     })
-    public abstract SessionDto toDto(Session session);
+    public abstract SessionDto fromView(SessionView view, List<Long> users);
+
+    @Timed(MAPPER_TIMER)
+    public SessionDto fromView(SessionView view) {
+        if (view == null) {
+            return null;
+        }
+        return fromView(view, this.sessionService.findParticipantIds(List.of(view.id())));
+    }
+
+    /**
+     * Comme {@link #toDto(List)} : les ids des participants de toute la liste sont lus en une seule requête.
+     */
+    @Timed(MAPPER_TIMER)
+    public List<SessionDto> fromViews(List<SessionView> views) {
+        if (views == null) {
+            return null;
+        }
+        Map<Long, List<Long>> participants = views.isEmpty() ? Collections.emptyMap()
+                : this.sessionService.findParticipantIds(views.stream().map(SessionView::id).collect(Collectors.toList()));
+
+        List<SessionDto> list = new ArrayList<>(views.size());
+        for (SessionView view : views) {
+            list.add(fromView(view, participants));
+        }
+        return list;
+    }
+
+    /**
+     * Ids des participants des sessions dont la collection users n'est pas encore chargée.
+     */
+    private Map<Long, List<Long>> loadParticipantIds(List<Session> sessions) {
+        List<Long> sessionIds = sessions.stream()
+                .filter(session -> session != null && session.getId() != null && !Hibernate.isInitialized(session.getUsers()))
+                .map(Session::getId)
+                .collect(Collectors.toList());
+
+        return sessionIds.isEmpty() ? Collections.emptyMap() : this.sessionService.findParticipantIds(sessionIds);
+    }
+
+    List<Long> participantIds(Session session, Map<Long, List<Long>> participants) {
+        List<User> users = session.getUsers();
+        if (users == null) {
+            return new ArrayList<>();
+        }
+        if (Hibernate.isInitialized(users)) {
+            return users.stream().map(User::getId).collect(Collectors.toList());
+        }
+        return participants.getOrDefault(session.getId(), LongArrayList.empty());
+    }
 }
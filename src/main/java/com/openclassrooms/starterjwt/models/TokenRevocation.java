@@ -0,0 +1,29 @@
+package com.openclassrooms.starterjwt.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * Tous les tokens de l'utilisateur émis au plus tard à revokedBefore (secondes epoch, la précision du claim
+ * "iat") sont révoqués. Pas de clé étrangère : la révocation doit survivre à la suppression de l'utilisateur.
+ */
+@Entity
+@Table(name = "token_revocations")
+@Data
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_before", nullable = false)
+    private long revokedBefore;
+}
@@ -63,6 +63,7 @@ public class User {
     @NonNull
     @Size(max = 120)
     @Column(nullable = false)
+    @ToString.Exclude
     private String password;
 
     @NonNull
@@ -73,7 +74,7 @@ public class User {
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
-    @Column(columnDefinition="TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
+    @Column(columnDefinition="TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6)")
     private LocalDateTime updatedAt;
 
 }
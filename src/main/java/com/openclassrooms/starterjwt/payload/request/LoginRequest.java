@@ -3,6 +3,7 @@ package com.openclassrooms.starterjwt.payload.request;
 
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
+import lombok.ToString;
 
 @Data
 public class LoginRequest {
@@ -10,6 +11,7 @@ public class LoginRequest {
     private String email;
 
     @NotBlank
+    @ToString.Exclude
     private String password;
 
 }
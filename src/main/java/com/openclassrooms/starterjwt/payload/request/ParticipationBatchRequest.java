@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Inscriptions en masse : un groupe d'utilisateurs à une session, ou un utilisateur à plusieurs sessions.
+ */
+@Data
+public class ParticipationBatchRequest {
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@Valid @NotNull Participation> participations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Participation {
+        @NotNull
+        private Long sessionId;
+
+        @NotNull
+        private Long userId;
+    }
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Création en masse de sessions (planning d'un trimestre, par exemple).
+ */
+@Data
+public class SessionBatchRequest {
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid @NotNull SessionDto> sessions;
+}
@@ -4,6 +4,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import lombok.ToString;
 
 
 
@@ -24,5 +25,6 @@ public class SignupRequest {
 
     @NotBlank
     @Size(min = 6, max = 40)
+    @ToString.Exclude
     private String password;
 }
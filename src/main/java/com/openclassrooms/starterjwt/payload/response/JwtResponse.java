@@ -8,6 +8,8 @@ import lombok.Setter;
 public class JwtResponse {
     private String token;
     private String type = "Bearer";
+    // à présenter à /api/auth/refresh pour obtenir un nouveau token sans se reconnecter
+    private String refreshToken;
     private Long id;
     private String username;
     private String firstName;
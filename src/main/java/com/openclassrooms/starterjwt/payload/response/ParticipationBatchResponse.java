@@ -0,0 +1,33 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Résultat de chaque inscription demandée, dans l'ordre de la requête.
+ */
+@Data
+@AllArgsConstructor
+public class ParticipationBatchResponse {
+    private List<ParticipationResult> results;
+
+    @Data
+    @AllArgsConstructor
+    public static class ParticipationResult {
+        private Long sessionId;
+
+        private Long userId;
+
+        private ParticipationStatus status;
+    }
+
+    public enum ParticipationStatus {
+        ENROLLED,
+        ALREADY_PARTICIPATING,
+        SESSION_NOT_FOUND,
+        USER_NOT_FOUND,
+        SESSION_FULL
+    }
+}
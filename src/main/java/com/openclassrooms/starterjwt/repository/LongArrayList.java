@@ -0,0 +1,40 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Vue {@code List<Long>} non modifiable sur un tableau de longs : 8 octets par id au lieu d'un Long et d'une
+ * référence, et les Long ne sont créés qu'à la lecture (sérialisation JSON).
+ */
+public final class LongArrayList extends AbstractList<Long> implements RandomAccess {
+
+    private static final LongArrayList EMPTY = new LongArrayList(new long[0]);
+
+    private final long[] values;
+
+    private LongArrayList(long[] values) {
+        this.values = values;
+    }
+
+    /**
+     * @param values tableau repris sans copie : il ne doit plus être modifié
+     */
+    public static LongArrayList of(long[] values) {
+        return values.length == 0 ? EMPTY : new LongArrayList(values);
+    }
+
+    public static LongArrayList empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public Long get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
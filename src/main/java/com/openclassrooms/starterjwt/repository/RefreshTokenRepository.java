@@ -0,0 +1,39 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Consomme un token encore valide : une seule suppression par l'index unique sur l'empreinte.
+     * Deux rotations concurrentes du même token ne peuvent pas réussir toutes les deux.
+     *
+     * @return 1 si le token était enregistré et non expiré, 0 sinon
+     */
+    @Modifying
+    @Query("delete from RefreshToken t where t.tokenHash = :tokenHash and t.expiresAt > :now")
+    int consume(@Param("tokenHash") byte[] tokenHash, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Purge par lots, pour ne pas verrouiller longtemps la table quand beaucoup de tokens expirent ensemble.
+     * Chaque lot est validé dans sa propre transaction.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from refresh_tokens where expires_at <= :now limit :limit", nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -1,9 +1,122 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface SessionRepository extends JpaRepository<Session, Long> {
+public interface SessionRepository extends JpaRepository<Session, Long>, JpaSpecificationExecutor<Session>, SessionRepositoryCustom {
+
+    String SESSION_VIEW = "select new com.openclassrooms.starterjwt.repository.SessionView("
+            + "s.id, s.name, s.date, s.description, s.capacity, s.teacher.id, s.createdAt, s.updatedAt) from Session s";
+
+    @Query(SESSION_VIEW + " where s.id = :id")
+    Optional<SessionView> findViewById(@Param("id") Long id);
+
+    /**
+     * Verrouille la ligne de la session jusqu'à la fin de la transaction : sérialise les inscriptions
+     * concurrentes à une même session, et seulement à celle-ci.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("select s from Session s where s.id = :id")
+    Optional<Session> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Verrouille plusieurs sessions, toujours dans l'ordre des ids pour que deux lots concurrents ne
+     * puissent pas s'interbloquer.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("select s from Session s where s.id in :ids order by s.id")
+    List<Session> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Inscrit l'utilisateur à la session en une seule écriture dans PARTICIPATE, si la session et l'utilisateur
+     * existent, qu'il n'y participe pas déjà et que la capacité de la session n'est pas atteinte.
+     *
+     * @return 1 si la ligne a été insérée, 0 sinon
+     */
+    @Modifying
+    @Query(value = "insert into participate (session_id, user_id) "
+            + "select s.id, u.id from sessions s join users u on u.id = :userId "
+            + "where s.id = :sessionId "
+            + "and not exists (select 1 from participate p where p.session_id = s.id and p.user_id = u.id) "
+            + "and (s.capacity is null "
+            + "or (select count(*) from participate c where c.session_id = s.id) < s.capacity)",
+            nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Marque les sessions comme modifiées (validateurs HTTP) quand leurs participants changent hors JPA.
+     */
+    @Modifying
+    @Query(value = "update sessions set updated_at = :updatedAt where id in :ids", nativeQuery = true)
+    int touch(@Param("ids") Collection<Long> ids, @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * État de la table, pour les validateurs HTTP de la liste : nombre de sessions et dernière modification.
+     */
+    @Query("select count(s) as count, max(s.updatedAt) as lastModified from Session s")
+    TableVersion findTableVersion();
+
+    @Query("select count(u) > 0 from Session s join s.users u where s.id = :sessionId and u.id = :userId")
+    boolean isParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * @return 1 si la participation existait et a été supprimée, 0 sinon
+     */
+    @Modifying
+    @Query(value = "delete from participate where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * @return le nombre de participations supprimées
+     */
+    @Modifying
+    @Query(value = "delete from participate where session_id = :sessionId and user_id in :userIds", nativeQuery = true)
+    int removeParticipants(@Param("sessionId") Long sessionId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Participations existantes parmi les sessions et utilisateurs donnés.
+     */
+    @Query("select s.id as sessionId, u.id as userId from Session s join s.users u "
+            + "where s.id in :sessionIds and u.id in :userIds")
+    List<ParticipantId> findExistingParticipations(@Param("sessionIds") Collection<Long> sessionIds,
+                                                   @Param("userIds") Collection<Long> userIds);
+
+    @Query("select s.id as sessionId, count(u) as participants from Session s join s.users u "
+            + "where s.id in :sessionIds group by s.id")
+    List<ParticipantCount> countParticipants(@Param("sessionIds") Collection<Long> sessionIds);
+
+    interface ParticipantId {
+        Long getSessionId();
+
+        Long getUserId();
+    }
+
+    interface TableVersion {
+        long getCount();
+
+        LocalDateTime getLastModified();
+    }
+
+    interface ParticipantCount {
+        Long getSessionId();
+
+        Long getParticipants();
+    }
 }
@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Écritures en masse qui passent directement par JDBC : avec des ids IDENTITY, Hibernate ne regroupe pas
+ * les insertions en lots. Lecture paginée en projection, que Spring Data ne sait pas combiner à une
+ * Specification sans charger les entités.
+ */
+public interface SessionRepositoryCustom {
+
+    /**
+     * Sessions satisfaisant les critères, dans l'ordre donné, au plus {@code limit}, lues en {@link SessionView}.
+     */
+    List<SessionView> findViews(Specification<Session> specification, Sort sort, int limit);
+
+    /**
+     * Ids des participants par id de session, lus directement dans PARTICIPATE : une seule requête, sans
+     * jointure sur sessions ni users. Les sessions sans participant sont absentes.
+     */
+    Map<Long, long[]> findParticipantIdArrays(Collection<Long> sessionIds);
+
+    /**
+     * Parcourt toutes les sessions par id croissant avec leurs participants, sur un curseur en avant seulement :
+     * une seule session est en mémoire à la fois, quel que soit le nombre de sessions.
+     *
+     * @param action appelée pour chaque session, avec les ids triés de ses participants
+     */
+    void forEachSession(SessionRowHandler action);
+
+    @FunctionalInterface
+    interface SessionRowHandler {
+        void accept(SessionView session, long[] userIds) throws IOException;
+    }
+
+    /**
+     * Insère les sessions (hors participants) en un seul lot JDBC et leur affecte les ids générés.
+     */
+    void insertSessions(List<Session> sessions);
+
+    /**
+     * Insère les participations données (ids des utilisateurs par id de session) en lots JDBC.
+     */
+    void insertParticipants(Map<Long, List<Long>> userIdsBySession);
+}
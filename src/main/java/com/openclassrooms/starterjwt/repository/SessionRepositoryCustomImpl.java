@@ -0,0 +1,233 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class SessionRepositoryCustomImpl implements SessionRepositoryCustom {
+
+    private static final String INSERT_SESSION = "insert into sessions "
+            + "(name, date, description, capacity, teacher_id, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?)";
+
+    // triés par session : chaque groupe est lu d'un bloc, sans table de listes intermédiaire
+    private static final String SELECT_PARTICIPANTS = "select session_id, user_id from participate "
+            + "where session_id in (:sessionIds) order by session_id, user_id";
+
+    // une ligne par participant (ou une seule, sans participant) : les lignes d'une session sont consécutives
+    private static final String SELECT_EXPORT = "select s.id, s.name, s.date, s.description, s.capacity, s.teacher_id, "
+            + "s.created_at, s.updated_at, p.user_id from sessions s left join participate p on p.session_id = s.id "
+            + "order by s.id, p.user_id";
+
+    private static final String INSERT_PARTICIPANT = "insert into participate (session_id, user_id) values (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Integer.MIN_VALUE : MySQL Connector/J lit les lignes une à une au lieu de charger tout le résultat
+    @Value("${oc.app.exportFetchSize:1000}")
+    private int exportFetchSize;
+
+    // même taille de lot que Hibernate
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    SessionRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public List<SessionView> findViews(Specification<Session> specification, Sort sort, int limit) {
+        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<SessionView> query = cb.createQuery(SessionView.class);
+        Root<Session> root = query.from(Session.class);
+
+        query.select(cb.construct(SessionView.class,
+                root.get("id"), root.get("name"), root.get("date"), root.get("description"), root.get("capacity"),
+                root.get("teacher").get("id"), root.get("createdAt"), root.get("updatedAt")));
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return this.entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Map<Long, long[]> findParticipantIdArrays(Collection<Long> sessionIds) {
+        Map<Long, long[]> participants = new HashMap<>();
+        if (sessionIds.isEmpty()) {
+            return participants;
+        }
+
+        ParticipantGroups groups = new ParticipantGroups(participants);
+        this.namedParameterJdbcTemplate.query(SELECT_PARTICIPANTS, Map.of("sessionIds", sessionIds), groups);
+        groups.flush();
+        return participants;
+    }
+
+    @Override
+    public void forEachSession(SessionRowHandler action) {
+        this.jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_EXPORT,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(this.exportFetchSize);
+            return ps;
+        }, (ResultSetExtractor<Void>) rs -> {
+            SessionView session = null;
+            long[] userIds = new long[16];
+            int size = 0;
+            try {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (session == null || session.id() != id) {
+                        if (session != null) {
+                            action.accept(session, Arrays.copyOf(userIds, size));
+                        }
+                        session = new SessionView(id, rs.getString(2), rs.getTimestamp(3), rs.getString(4),
+                                rs.getObject(5, Integer.class), rs.getObject(6, Long.class),
+                                toLocalDateTime(rs.getTimestamp(7)), toLocalDateTime(rs.getTimestamp(8)));
+                        size = 0;
+                    }
+                    long userId = rs.getLong(9);
+                    if (!rs.wasNull()) {
+                        if (size == userIds.length) {
+                            userIds = Arrays.copyOf(userIds, size * 2);
+                        }
+                        userIds[size++] = userId;
+                    }
+                }
+                if (session != null) {
+                    action.accept(session, Arrays.copyOf(userIds, size));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * Accumule les ids d'une session dans un tableau qui grandit au besoin, puis le range ajusté à sa taille
+     * quand la session change.
+     */
+    private static final class ParticipantGroups implements RowCallbackHandler {
+
+        private final Map<Long, long[]> participants;
+        private long sessionId;
+        private long[] userIds = new long[16];
+        private int size;
+
+        ParticipantGroups(Map<Long, long[]> participants) {
+            this.participants = participants;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowSessionId = rs.getLong(1);
+            if (size > 0 && rowSessionId != sessionId) {
+                flush();
+            }
+            sessionId = rowSessionId;
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+            }
+            userIds[size++] = rs.getLong(2);
+        }
+
+        void flush() {
+            if (size > 0) {
+                participants.put(sessionId, Arrays.copyOf(userIds, size));
+                size = 0;
+            }
+        }
+    }
+
+    @Override
+    public void insertSessions(List<Session> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        this.jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SESSION, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Session session = sessions.get(i);
+                        ps.setString(1, session.getName());
+                        ps.setTimestamp(2, new Timestamp(session.getDate().getTime()));
+                        ps.setString(3, session.getDescription());
+                        ps.setObject(4, session.getCapacity(), Types.INTEGER);
+                        ps.setObject(5, session.getTeacher() != null ? session.getTeacher().getId() : null, Types.BIGINT);
+                        ps.setTimestamp(6, Timestamp.valueOf(session.getCreatedAt()));
+                        ps.setTimestamp(7, Timestamp.valueOf(session.getUpdatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return sessions.size();
+                    }
+                },
+                keyHolder);
+
+        // les clés sont rendues dans l'ordre du lot
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < sessions.size(); i++) {
+            sessions.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    @Override
+    public void insertParticipants(Map<Long, List<Long>> userIdsBySession) {
+        List<Object[]> rows = new ArrayList<>();
+        userIdsBySession.forEach((sessionId, userIds) -> userIds.forEach(userId -> rows.add(new Object[]{sessionId, userId})));
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        this.jdbcTemplate.batchUpdate(INSERT_PARTICIPANT, rows, this.batchSize, (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setLong(2, (Long) row[1]);
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Date;
+
+/**
+ * Critères de recherche des sessions, combinés dynamiquement pour ne générer que les prédicats utiles
+ * (et laisser MySQL choisir l'index (date, id) ou (teacher_id, date, id)).
+ */
+public final class SessionSpecifications {
+
+    private SessionSpecifications() {
+    }
+
+    /**
+     * Sessions strictement après la position (date, id) : condition de reprise de la pagination par clé.
+     */
+    public static Specification<Session> after(Date date, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("date"), date),
+                cb.and(cb.equal(root.get("date"), date), cb.greaterThan(root.get("id"), id)));
+    }
+
+    public static Specification<Session> dateFrom(Date from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("date"), from);
+    }
+
+    public static Specification<Session> dateBefore(Date to) {
+        return (root, query, cb) -> cb.lessThan(root.get("date"), to);
+    }
+
+    public static Specification<Session> teacher(Long teacherId) {
+        return (root, query, cb) -> cb.equal(root.get("teacher").get("id"), teacherId);
+    }
+}
@@ -0,0 +1,19 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * Colonnes d'une session exposées par l'API, lues par une expression constructeur : ni entité gérée, ni
+ * instantané pour le dirty checking. L'id du professeur est lu depuis la clé étrangère, sans jointure ; les
+ * participants sont lus à part, pour toute une liste en une requête (cf. SessionMapper).
+ */
+public record SessionView(Long id,
+                          String name,
+                          Date date,
+                          String description,
+                          Integer capacity,
+                          Long teacherId,
+                          LocalDateTime createdAt,
+                          LocalDateTime updatedAt) {
+}
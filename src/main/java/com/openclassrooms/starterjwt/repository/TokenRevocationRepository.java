@@ -0,0 +1,21 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    /**
+     * Supprime les révocations devenues inutiles : tous les tokens qu'elles visent ont expiré.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from TokenRevocation r where r.revokedBefore < :epochSecond")
+    int deleteOlderThan(@Param("epochSecond") long epochSecond);
+}
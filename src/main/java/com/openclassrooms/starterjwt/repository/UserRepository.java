@@ -2,8 +2,13 @@ package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +16,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     Boolean existsByEmail(String email);
+
+    @Query("select new com.openclassrooms.starterjwt.repository.UserView("
+            + "u.id, u.email, u.lastName, u.firstName, u.admin, u.createdAt, u.updatedAt) from User u where u.id = :id")
+    Optional<UserView> findViewById(@Param("id") Long id);
+
+    /**
+     * Parmi les ids donnés, ceux qui existent, en une seule requête et sans charger les entités.
+     */
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Remplace le hash du mot de passe ; updated_at n'est pas modifié, le mot de passe ne faisant pas partie
+     * de la représentation de l'utilisateur.
+     */
+    @Modifying
+    @Query("update User u set u.password = :password where u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
 }
@@ -0,0 +1,15 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Colonnes d'un utilisateur exposées par l'API, sans le hash du mot de passe.
+ */
+public record UserView(Long id,
+                       String email,
+                       String lastName,
+                       String firstName,
+                       boolean admin,
+                       LocalDateTime createdAt,
+                       LocalDateTime updatedAt) {
+}
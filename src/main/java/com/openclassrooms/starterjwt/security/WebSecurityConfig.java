@@ -1,12 +1,18 @@
 package com.openclassrooms.starterjwt.security;
 
+import com.openclassrooms.starterjwt.security.crypto.OffloadingPasswordEncoder;
+import com.openclassrooms.starterjwt.security.crypto.RehashingAuthenticationProvider;
 import com.openclassrooms.starterjwt.security.jwt.AuthEntryPointJwt;
 import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -15,7 +21,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -25,6 +30,28 @@ public class WebSecurityConfig {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Coût BCrypt des nouveaux hashes ; les hashes d'un coût inférieur sont recalculés à la connexion suivante.
+     */
+    @Value("${oc.app.bcryptStrength:10}")
+    private int bcryptStrength;
+
+    /**
+     * Threads dédiés au hachage (0 : nombre de CPU) et taille de leur file d'attente, au-delà de laquelle
+     * la connexion est refusée en 503.
+     */
+    @Value("${oc.app.passwordHashThreads:0}")
+    private int passwordHashThreads;
+
+    @Value("${oc.app.passwordHashQueueSize:64}")
+    private int passwordHashQueueSize;
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authConfig) throws Exception {
         return authConfig.getAuthenticationManager();
@@ -37,31 +64,39 @@ public class WebSecurityConfig {
 
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public OffloadingPasswordEncoder passwordEncoder() {
+        int threads = passwordHashThreads > 0 ? passwordHashThreads : Runtime.getRuntime().availableProcessors();
+        return new OffloadingPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), threads, passwordHashQueueSize,
+                meterRegistry);
     }
 
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
-        return authProvider;
+        return new RehashingAuthenticationProvider(userDetailsService, passwordEncoder(), userDetailsService);
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        // scrape Prometheus sans token seulement sur le port de management (interne), jamais sur celui de l'API
+        boolean internalManagementPort = ManagementPortType.get(environment) == ManagementPortType.DIFFERENT;
         http
                 .cors(AbstractHttpConfigurer::disable)
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(management -> management.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
-                .authorizeHttpRequests(authorize -> authorize
-                        // No auth needed on :
-                        .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/api/**").authenticated()
-                        .anyRequest().authenticated()
-                )
+                .authorizeHttpRequests(authorize -> {
+                    authorize
+                            // No auth needed on :
+                            .requestMatchers("/api/auth/**").permitAll()
+                            // sondes ; /actuator/metrics reste authentifié
+                            .requestMatchers("/actuator/health/**").permitAll();
+                    if (internalManagementPort) {
+                        authorize.requestMatchers("/actuator/prometheus").permitAll();
+                    }
+                    authorize
+                            .requestMatchers("/api/**").authenticated()
+                            .anyRequest().authenticated();
+                })
                 .addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class)
                 .exceptionHandling(exceptionHandling -> exceptionHandling.authenticationEntryPoint(
                         (request, response, exception) -> {
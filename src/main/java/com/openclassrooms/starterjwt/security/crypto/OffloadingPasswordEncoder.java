@@ -0,0 +1,137 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exécute le hachage et la vérification des mots de passe sur un pool dédié, dimensionné au nombre de CPU,
+ * avec une file d'attente bornée : une rafale de connexions ne bloque plus les threads de requête sur BCrypt.
+ * <p>
+ * File pleine : {@link ServiceOverloadedException} immédiate (503), plutôt qu'une attente sans fin. Le
+ * recalcul d'un hash de coût inférieur après une connexion réussie est facultatif : il passe par
+ * {@link #tryEncode}, reporté à une connexion suivante quand des hachages attendent déjà, et ne fait jamais
+ * échouer la connexion (cf. RehashingAuthenticationProvider).
+ * <p>
+ * Métriques : durée du calcul BCrypt seul (yoga.password.hash, tag operation), attente dans la file
+ * (yoga.password.hash.wait), taille de la file (yoga.password.hash.queue) et recalculs reportés
+ * (yoga.password.hash.upgrade.deferred).
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    static final long RETRY_AFTER_SECONDS = 1;
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer waitTimer;
+    private final Counter deferredUpgrades;
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+        this(delegate, threads, queueCapacity, Metrics.globalRegistry);
+    }
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.waitTimer = Timer.builder("yoga.password.hash.wait")
+                .description("Attente d'un thread du pool de hachage")
+                .register(meterRegistry);
+        this.deferredUpgrades = Counter.builder("yoga.password.hash.upgrade.deferred")
+                .description("Recalculs de hash reportés faute de place dans le pool")
+                .register(meterRegistry);
+        Gauge.builder("yoga.password.hash.queue", executor, pool -> pool.getQueue().size())
+                .description("Hachages en attente d'un thread")
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("yoga.password.hash")
+                .description("Calcul du hash du mot de passe, hors attente")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    /**
+     * Hachage facultatif, pour le recalcul d'un hash de coût inférieur : vide, sans erreur, si des hachages
+     * attendent déjà un thread (le recalcul doublerait la charge du pool) ou si le pool refuse la tâche.
+     */
+    public Optional<String> tryEncode(CharSequence rawPassword) {
+        if (executor.getQueue().isEmpty()) {
+            try {
+                return Optional.of(encode(rawPassword));
+            } catch (ServiceOverloadedException e) {
+                // file remplie entre-temps
+            }
+        }
+        deferredUpgrades.increment();
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Vrai si le hash a été produit avec un coût inférieur au coût configuré : il est alors recalculé, si le pool
+     * le permet, après une connexion réussie (cf. {@link #tryEncode}).
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Timer timer, Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(task);
+            }).get();
+        } catch (RejectedExecutionException e) {
+            throw new ServiceOverloadedException("Error: Too many authentication requests, retry later!", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    int queuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Optional;
+
+/**
+ * DaoAuthenticationProvider dont le recalcul d'un hash de coût inférieur, après une connexion réussie, passe par
+ * {@link OffloadingPasswordEncoder#tryEncode} : pool de hachage occupé, le hash actuel est gardé et la connexion
+ * réussit quand même. Le recalcul intégré de DaoAuthenticationProvider, qui appelle encode et échouerait en 503,
+ * reste inactif : aucun UserDetailsPasswordService ne lui est donné.
+ */
+public class RehashingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final OffloadingPasswordEncoder passwordEncoder;
+    private final UserDetailsPasswordService passwordService;
+
+    public RehashingAuthenticationProvider(UserDetailsService userDetailsService,
+                                           OffloadingPasswordEncoder passwordEncoder,
+                                           UserDetailsPasswordService passwordService) {
+        this.passwordEncoder = passwordEncoder;
+        this.passwordService = passwordService;
+        setUserDetailsService(userDetailsService);
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+                                                         UserDetails user) {
+        UserDetails current = user;
+        if (user.getPassword() != null && passwordEncoder.upgradeEncoding(user.getPassword())) {
+            Optional<String> rehashed = passwordEncoder.tryEncode(authentication.getCredentials().toString());
+            if (rehashed.isPresent()) {
+                current = passwordService.updatePassword(user, rehashed.get());
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, current);
+    }
+}
@@ -1,13 +1,18 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import com.openclassrooms.starterjwt.configuration.RequestTiming;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,23 +22,56 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
     @Autowired
-    private JwtUtils jwtUtils;
+    private JwtTokenCache jwtTokenCache;
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    /**
+     * Si vrai, le principal est reconstruit à partir des claims d'un token dont la signature est vérifiée
+     * (aucune requête SQL) ; sinon, ou pour un token sans ces claims, il est rechargé depuis la base.
+     */
+    @Value("${oc.app.jwtTrustClaims:true}")
+    private boolean trustClaims;
+
+    // vérification des tokens présentés (cache compris), par résultat
+    private Timer validTokenTimer;
+    private Timer invalidTokenTimer;
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.validTokenTimer = verificationTimer(meterRegistry, "valid");
+        this.invalidTokenTimer = verificationTimer(meterRegistry, "invalid");
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("yoga.jwt.verification")
+                .description("Vérification des tokens d'accès par AuthTokenFilter, cache compris")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.current();
+        long mark = timing != null ? timing.mark() : 0;
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Un token déjà vérifié est servi par le cache, sans nouvelle vérification de signature.
+            VerifiedToken token = jwt != null ? verify(jwt) : null;
+            // la révocation est vérifiée à chaque requête, y compris pour un token servi par le cache
+            if (token != null && !token.isRefreshToken()
+                    && !tokenRevocationList.isRevoked(token.userId(), token.issuedAt())) {
+                UserDetails userDetails = trustClaims && token.hasPrincipalClaims()
+                        ? toUserDetails(token)
+                        : userDetailsService.loadUserByUsername(token.subject());
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -46,11 +84,32 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
         }
+        if (timing != null) {
+            timing.addAuth(mark);
+        }
 
         filterChain.doFilter(request, response);
     }
 
-    private String parseJwt(HttpServletRequest request) {
+    private VerifiedToken verify(String jwt) {
+        long start = System.nanoTime();
+        VerifiedToken token = jwtTokenCache.verify(jwt);
+        (token != null ? validTokenTimer : invalidTokenTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
+    }
+
+    private static UserDetails toUserDetails(VerifiedToken token) {
+        return UserDetailsImpl
+                .builder()
+                .id(token.userId())
+                .username(token.subject())
+                .firstName(token.firstName())
+                .lastName(token.lastName())
+                .admin(token.admin())
+                .build();
+    }
+
+    String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
         if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
@@ -0,0 +1,332 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Clés de signature des tokens, identifiées par leur kid.
+ * <p>
+ * Avec ES256 ou EdDSA, les tokens sont signés par la clé privée courante et toute instance (ou passerelle) peut
+ * les vérifier avec la seule clé publique, publiée par /api/auth/jwks. Les clés viennent :
+ * <ul>
+ *     <li>d'un keystore PKCS12 (oc.app.jwtKeyStore) : un alias par clé, le plus récent signe. Pour une rotation,
+ *     ajouter un alias et redémarrer ; les anciens continuent de vérifier.</li>
+ *     <li>en développement seulement (oc.app.jwtAllowGeneratedKeys), d'une paire générée au démarrage et
+ *     renouvelée toutes les oc.app.jwtKeyRotationMs. Les clés retirées vérifient encore pendant la durée de vie
+ *     la plus longue d'un token. Clés propres à l'instance, perdues au redémarrage ; sans keystore ni cette
+ *     option, le démarrage échoue.</li>
+ * </ul>
+ * HS512, avec le secret partagé oc.app.jwtSecret, est l'algorithme par défaut. Au passage aux clés asymétriques, les
+ * tokens HS512 sans kid émis avant la bascule restent vérifiés par le secret jusqu'à oc.app.jwtLegacyAcceptUntil, au
+ * plus une durée de vie de refresh token après le démarrage ; sans cette date, le secret est ignoré et n'a pas à être
+ * déployé sur les instances.
+ */
+@Slf4j
+@Component
+public class JwtKeyRing {
+
+    /**
+     * Clé de signature ; kid null pour le secret HMAC historique.
+     */
+    public record SigningKey(String kid, Key key, PublicKey publicKey, SecureDigestAlgorithm<Key, ?> algorithm,
+                             Instant retiredAt) {
+
+        SigningKey retire(Instant at) {
+            return new SigningKey(kid, key, publicKey, algorithm, at);
+        }
+    }
+
+    private final SecureDigestAlgorithm<Key, ?> algorithm;
+    private final SigningKey legacyKey;
+    // fin de la période de transition ; null : sans limite (HS512)
+    private final Instant legacyUntil;
+    private final boolean generated;
+    private final Duration retention;
+    private final Clock clock;
+
+    // la clé courante est la première ; liste remplacée en bloc à chaque rotation
+    private volatile List<SigningKey> keys;
+
+    /**
+     * @throws IllegalStateException en ES256 ou EdDSA sans keystore, sauf si oc.app.jwtAllowGeneratedKeys
+     *                               autorise les clés générées (développement), si une clé du keystore ne
+     *                               correspond pas à l'algorithme, ou si la période de transition est invalide
+     */
+    @Autowired
+    public JwtKeyRing(@Value("${oc.app.jwtAlgorithm:HS512}") String algorithm,
+                      @Value("${oc.app.jwtSecret:}") String secret,
+                      @Value("${oc.app.jwtKeyStore:}") String keyStore,
+                      @Value("${oc.app.jwtKeyStorePassword:}") String keyStorePassword,
+                      @Value("${oc.app.jwtAllowGeneratedKeys:false}") boolean allowGeneratedKeys,
+                      @Value("${oc.app.jwtLegacyAcceptUntil:}") String legacyAcceptUntil,
+                      @Value("${oc.app.jwtExpirationMs}") long jwtExpirationMs,
+                      @Value("${oc.app.jwtRefreshExpirationMs:2592000000}") long jwtRefreshExpirationMs) {
+        this(algorithm, secret,
+                StringUtils.hasText(keyStore)
+                        ? loadKeyStore(Path.of(keyStore), keyStorePassword, algorithm(algorithm))
+                        : requireGeneratedKeysAllowed(algorithm(algorithm), allowGeneratedKeys),
+                StringUtils.hasText(legacyAcceptUntil) ? Instant.parse(legacyAcceptUntil) : null,
+                Duration.ofMillis(Math.max(jwtExpirationMs, jwtRefreshExpirationMs)),
+                Clock.systemUTC());
+    }
+
+    JwtKeyRing(String algorithm, String secret, List<SigningKey> keyStoreKeys, Duration retention, Clock clock) {
+        this(algorithm, secret, keyStoreKeys, null, retention, clock);
+    }
+
+    JwtKeyRing(String algorithm, String secret, List<SigningKey> keyStoreKeys, Instant legacyUntil,
+               Duration retention, Clock clock) {
+        this.algorithm = algorithm(algorithm);
+        this.retention = retention;
+        this.clock = clock;
+        SigningKey secretKey = StringUtils.hasText(secret)
+                ? new SigningKey(null, Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)), null, algorithm("HS512"), null)
+                : null;
+
+        if (Jwts.SIG.HS512.getId().equals(this.algorithm.getId())) {
+            if (secretKey == null) {
+                throw new IllegalStateException("oc.app.jwtSecret is required with HS512");
+            }
+            this.legacyKey = secretKey;
+            this.legacyUntil = null;
+            this.generated = false;
+            this.keys = List.of(secretKey);
+            return;
+        }
+
+        if (legacyUntil == null) {
+            if (secretKey != null) {
+                log.warn("oc.app.jwtSecret is ignored with {}: set oc.app.jwtLegacyAcceptUntil to keep accepting HS512 "
+                        + "tokens during the switch", algorithm);
+            }
+            this.legacyKey = null;
+        } else {
+            if (secretKey == null) {
+                throw new IllegalStateException("oc.app.jwtLegacyAcceptUntil requires oc.app.jwtSecret");
+            }
+            if (legacyUntil.isAfter(clock.instant().plus(retention))) {
+                throw new IllegalStateException("oc.app.jwtLegacyAcceptUntil must be at most " + retention
+                        + " from now, was " + legacyUntil);
+            }
+            this.legacyKey = secretKey;
+        }
+        this.legacyUntil = legacyUntil;
+
+        if (keyStoreKeys != null) {
+            this.generated = false;
+            this.keys = List.copyOf(keyStoreKeys);
+        } else {
+            log.warn("No oc.app.jwtKeyStore configured: {} keys are generated in memory and differ between instances",
+                    algorithm);
+            this.generated = true;
+            this.keys = List.of(generate(this.algorithm));
+        }
+    }
+
+    /**
+     * Anneau HS512 sur un secret Base64, comme avant l'introduction des clés asymétriques.
+     */
+    public static JwtKeyRing hmac(String secret) {
+        return new JwtKeyRing("HS512", secret, null, Duration.ZERO, Clock.systemUTC());
+    }
+
+    /**
+     * Anneau d'une paire générée en mémoire pour l'algorithme donné (ES256 ou EdDSA).
+     */
+    public static JwtKeyRing generated(String algorithm, Duration retention) {
+        return new JwtKeyRing(algorithm, null, null, retention, Clock.systemUTC());
+    }
+
+    public SigningKey current() {
+        return keys.get(0);
+    }
+
+    /**
+     * @param kid identifiant de clé de l'en-tête du token, null pour un token HS512 sans kid
+     * @return la clé, ou null si ce kid est inconnu ou retiré depuis plus que la rétention, ou pour un token sans
+     * kid hors HS512 et hors période de transition
+     */
+    public SigningKey find(String kid) {
+        if (kid == null) {
+            return legacyUntil == null || clock.instant().isBefore(legacyUntil) ? legacyKey : null;
+        }
+        for (SigningKey key : keys) {
+            if (kid.equals(key.kid())) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Locator du parser : la clé est choisie par le kid de l'en-tête, et l'algorithme annoncé doit être celui de
+     * la clé, ce qui interdit de présenter un token HS512 signé avec une clé publique, ou l'inverse.
+     */
+    public Locator<Key> keyLocator() {
+        return new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                SigningKey key = find(header.getKeyId());
+                if (key == null || !key.algorithm().getId().equals(header.getAlgorithm())) {
+                    throw new UnsupportedJwtException("No " + header.getAlgorithm() + " key for kid " + header.getKeyId());
+                }
+                return key.publicKey() != null ? key.publicKey() : key.key();
+            }
+        };
+    }
+
+    /**
+     * Nouvelle paire courante ; la précédente ne sert plus qu'à vérifier. Sans effet avec un keystore ou HS512.
+     */
+    @Scheduled(initialDelayString = "${oc.app.jwtKeyRotationMs:86400000}", fixedDelayString = "${oc.app.jwtKeyRotationMs:86400000}")
+    public synchronized void rotate() {
+        if (!generated) {
+            return;
+        }
+        Instant now = clock.instant();
+        List<SigningKey> rotated = new ArrayList<>();
+        rotated.add(generate(algorithm));
+        for (SigningKey key : keys) {
+            SigningKey retired = key.retiredAt() == null ? key.retire(now) : key;
+            if (retired.retiredAt().plus(retention).isAfter(now)) {
+                rotated.add(retired);
+            }
+        }
+        keys = List.copyOf(rotated);
+        log.info("JWT signing key rotated, current kid {}, {} key(s) kept for verification", current().kid(), keys.size());
+    }
+
+    /**
+     * Clés publiques au format JWK Set (RFC 7517), vide en HS512.
+     */
+    public String jwks() {
+        return keys.stream()
+                .filter(key -> key.publicKey() != null)
+                .map(key -> Jwks.json(Jwks.builder()
+                        .key(key.publicKey())
+                        .id(key.kid())
+                        .algorithm(key.algorithm().getId())
+                        .publicKeyUse("sig")
+                        .build()))
+                .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+    }
+
+    @SuppressWarnings("unchecked")
+    static SecureDigestAlgorithm<Key, ?> algorithm(String name) {
+        return switch (name.toUpperCase(Locale.ROOT)) {
+            case "HS512" -> (SecureDigestAlgorithm<Key, ?>) (SecureDigestAlgorithm<?, ?>) Jwts.SIG.HS512;
+            case "ES256" -> (SecureDigestAlgorithm<Key, ?>) (SecureDigestAlgorithm<?, ?>) Jwts.SIG.ES256;
+            case "EDDSA" -> (SecureDigestAlgorithm<Key, ?>) (SecureDigestAlgorithm<?, ?>) Jwts.SIG.EdDSA;
+            default -> throw new IllegalArgumentException("Unsupported oc.app.jwtAlgorithm: " + name);
+        };
+    }
+
+    private static SigningKey generate(SecureDigestAlgorithm<Key, ?> algorithm) {
+        // EdDSA couvre deux courbes : la paire est générée sur Ed25519
+        KeyPair pair = Jwts.SIG.EdDSA.getId().equals(algorithm.getId())
+                ? Jwks.CRV.Ed25519.keyPair().build()
+                : ((SignatureAlgorithm) (Object) algorithm).keyPair().build();
+        return new SigningKey(UUID.randomUUID().toString(), pair.getPrivate(), pair.getPublic(), algorithm, null);
+    }
+
+    /**
+     * Des clés générées diffèrent d'une instance à l'autre et d'un démarrage à l'autre : chaque redémarrage
+     * invaliderait tous les tokens, et les instances ne vérifieraient pas ceux des autres.
+     */
+    private static List<SigningKey> requireGeneratedKeysAllowed(SecureDigestAlgorithm<Key, ?> algorithm, boolean allowed) {
+        if (!allowed && !Jwts.SIG.HS512.getId().equals(algorithm.getId())) {
+            throw new IllegalStateException("oc.app.jwtKeyStore is required with " + algorithm.getId()
+                    + " (oc.app.jwtAllowGeneratedKeys=true generates per-instance keys, for development only)");
+        }
+        return null;
+    }
+
+    private static List<SigningKey> loadKeyStore(Path path, String password, SecureDigestAlgorithm<Key, ?> algorithm) {
+        char[] secret = password.toCharArray();
+        try (InputStream in = Files.newInputStream(path)) {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, secret);
+
+            List<String> aliases = new ArrayList<>();
+            for (String alias : Collections.list(keyStore.aliases())) {
+                if (keyStore.isKeyEntry(alias)) {
+                    aliases.add(alias);
+                }
+            }
+            if (aliases.isEmpty()) {
+                throw new IllegalStateException("No key entry in " + path);
+            }
+            // le plus récent en tête : c'est lui qui signe
+            aliases.sort(Comparator.comparing((String alias) -> creationDate(keyStore, alias)).reversed());
+
+            List<SigningKey> keys = new ArrayList<>();
+            for (String alias : aliases) {
+                PrivateKey privateKey = (PrivateKey) keyStore.getKey(alias, secret);
+                PublicKey publicKey = keyStore.getCertificate(alias).getPublicKey();
+                keys.add(checked(path, new SigningKey(alias, privateKey, publicKey, algorithm, null)));
+            }
+            return keys;
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load JWT key store " + path, e);
+        }
+    }
+
+    /**
+     * Signe puis vérifie un token d'essai : une clé d'un autre type ou d'une autre courbe, ou un certificat qui ne
+     * correspond pas à la clé privée, échoue au démarrage plutôt qu'à la première connexion.
+     */
+    static SigningKey checked(Path path, SigningKey key) {
+        try {
+            String probe = Jwts.builder().subject("key-check").signWith(key.key(), key.algorithm()).compact();
+            Jwts.parser().verifyWith(key.publicKey()).build().parseSignedClaims(probe);
+            return key;
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new IllegalStateException("Key '" + key.kid() + "' in " + path + " cannot be used with "
+                    + key.algorithm().getId(), e);
+        }
+    }
+
+    private static Instant creationDate(KeyStore keyStore, String alias) {
+        try {
+            return keyStore.getCreationDate(alias).toInstant();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache borné des tokens déjà vérifiés, placé devant {@link JwtUtils#parseJwtClaims(String)}.
+ * <p>
+ * La clé est l'empreinte SHA-256 du token (le token lui-même n'est jamais conservé) et chaque entrée
+ * expire à l'instant "exp" de son propre token : un token expiré n'est donc jamais servi depuis le cache.
+ * Un hit évite toute vérification cryptographique et tout parsing JSON.
+ */
+@Component
+public class JwtTokenCache {
+
+    private final JwtUtils jwtUtils;
+
+    private final Cache<String, VerifiedToken> cache;
+
+    @Autowired
+    public JwtTokenCache(JwtUtils jwtUtils,
+                         @Value("${oc.app.jwtCacheMaxSize:10000}") long maxSize,
+                         @Value("${oc.app.jwtExpirationMs}") long jwtExpirationMs) {
+        this(jwtUtils, maxSize, jwtExpirationMs, ForkJoinPool.commonPool(), Ticker.systemTicker());
+    }
+
+    JwtTokenCache(JwtUtils jwtUtils, long maxSize, long jwtExpirationMs, Executor executor, Ticker ticker) {
+        this.jwtUtils = jwtUtils;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .executor(executor)
+                .expireAfter(new TokenExpiry(ticker, jwtExpirationMs))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return le token vérifié (depuis le cache si possible), ou null si le token est invalide ou expiré
+     */
+    public VerifiedToken verify(String token) {
+        String key = digest(token);
+
+        VerifiedToken verified = cache.getIfPresent(key);
+        if (verified != null) {
+            return verified;
+        }
+
+        Claims claims = jwtUtils.parseJwtClaims(token);
+        if (claims == null) {
+            return null;
+        }
+
+        verified = VerifiedToken.from(claims);
+        cache.put(key, verified);
+        return verified;
+    }
+
+    /**
+     * Compteurs hit / miss / éviction du cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Durée de vie d'une entrée = temps restant avant le "exp" du token (durée par défaut si absent).
+     */
+    private static final class TokenExpiry implements Expiry<String, VerifiedToken> {
+        private final Ticker ticker;
+        private final long defaultTtlNanos;
+        private final long originNanos;
+        private final long originMillis;
+
+        TokenExpiry(Ticker ticker, long defaultTtlMs) {
+            this.ticker = ticker;
+            this.defaultTtlNanos = TimeUnit.MILLISECONDS.toNanos(defaultTtlMs);
+            this.originNanos = ticker.read();
+            this.originMillis = System.currentTimeMillis();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            if (value.expiresAt() == null) {
+                return defaultTtlNanos;
+            }
+            long nowMillis = originMillis + TimeUnit.NANOSECONDS.toMillis(ticker.read() - originNanos);
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.expiresAt() - nowMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
@@ -17,43 +21,133 @@ import java.util.Date;
 @Slf4j
 @Component
 public class JwtUtils {
-    @Value("${oc.app.jwtSecret}")
-    private String jwtSecret;
+    /**
+     * Claims portant le principal : ils permettent à AuthTokenFilter de reconstruire l'utilisateur
+     * sans requête SQL une fois la signature vérifiée.
+     */
+    public static final String CLAIM_USER_ID = "id";
+    public static final String CLAIM_FIRST_NAME = "firstName";
+    public static final String CLAIM_LAST_NAME = "lastName";
+    public static final String CLAIM_ADMIN = "admin";
+
+    /**
+     * Type du token : absent pour un token d'accès, "refresh" pour un refresh token, qui n'est accepté que
+     * par /api/auth/refresh.
+     */
+    public static final String CLAIM_TYPE = "typ";
+    public static final String TYPE_REFRESH = "refresh";
+
+    @Autowired
+    private JwtKeyRing keyRing;
 
     @Value("${oc.app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
+    @Value("${oc.app.jwtRefreshExpirationMs:2592000000}")
+    private long jwtRefreshExpirationMs;
+
+    @Value("${oc.app.authFailureLogPermits:10}")
+    private int authFailureLogPermits = 10;
+
+    @Value("${oc.app.authFailureLogWindowMs:60000}")
+    private long authFailureLogWindowMs = 60_000;
+
+    // un token invalide est une erreur du client : log limité par catégorie d'échec
+    private RateLimitedLog authFailureLog;
+
+    /**
+     * Parser construit une seule fois au démarrage : immuable et thread-safe. La clé de vérification est
+     * choisie par le kid de chaque token, ce qui suit les rotations de {@link JwtKeyRing} sans le reconstruire.
+     */
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.jwtParser = Jwts.parser().keyLocator(keyRing.keyLocator()).build();
+        this.authFailureLog = new RateLimitedLog(authFailureLogPermits, authFailureLogWindowMs);
+    }
+
     public String generateJwtToken(Authentication authentication) {
+        return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+    }
 
-        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+    public String generateJwtToken(UserDetailsImpl userPrincipal) {
+        Date now = new Date();
+        return principalClaims(userPrincipal)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + jwtExpirationMs))
+                .compact();
+    }
 
-        return Jwts.builder()
-                .setSubject((userPrincipal.getUsername()))
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+    /**
+     * Refresh token : mêmes claims du principal qu'un token d'accès, pour en émettre un nouveau sans requête
+     * sur l'utilisateur, plus son identifiant unique (jti) et son type.
+     */
+    public String generateRefreshToken(UserDetailsImpl userPrincipal, String jti, Date expiration) {
+        return principalClaims(userPrincipal)
+                .id(jti)
+                .claim(CLAIM_TYPE, TYPE_REFRESH)
+                .issuedAt(new Date())
+                .expiration(expiration)
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser().setSigningKey(jwtSecret).build().parseClaimsJws(token).getBody().getSubject();
+    public long getJwtRefreshExpirationMs() {
+        return jwtRefreshExpirationMs;
     }
 
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Claims du principal, signés par la clé courante du trousseau et identifiés par son kid.
+     */
+    private JwtBuilder principalClaims(UserDetailsImpl userPrincipal) {
+        JwtKeyRing.SigningKey key = keyRing.current();
+        return Jwts.builder()
+                .header().keyId(key.kid()).and()
+                .signWith(key.key(), key.algorithm())
+                .subject(userPrincipal.getUsername())
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+                .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
+                .claim(CLAIM_ADMIN, userPrincipal.getAdmin());
+    }
+
+    /**
+     * Vérifie la signature et l'expiration du token puis retourne ses claims, en une seule passe.
+     *
+     * @return les claims du token, ou null si le token est invalide
+     */
+    public Claims parseJwtClaims(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).build().parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseSignedClaims(authToken).getPayload();
         } catch (SignatureException e) {
-            log.error("Invalid JWT signature: {}", e.getMessage());
+            logFailure("signature", "Invalid JWT signature", e);
         } catch (MalformedJwtException e) {
-            log.error("Invalid JWT token: {}", e.getMessage());
+            logFailure("malformed", "Invalid JWT token", e);
         } catch (ExpiredJwtException e) {
-            log.error("JWT token is expired: {}", e.getMessage());
+            logFailure("expired", "JWT token is expired", e);
         } catch (UnsupportedJwtException e) {
-            log.error("JWT token is unsupported: {}", e.getMessage());
+            logFailure("unsupported", "JWT token is unsupported", e);
         } catch (IllegalArgumentException e) {
-            log.error("JWT claims string is empty: {}", e.getMessage());
+            logFailure("empty", "JWT claims string is empty", e);
+        }
+        return null;
+    }
+
+    private void logFailure(String category, String message, Exception e) {
+        if (!log.isWarnEnabled()) {
+            return;
         }
-        return false;
+        long suppressed = authFailureLog.acquire(category);
+        if (suppressed >= 0) {
+            log.warn("{}: {} ({} similar message(s) suppressed)", message, e.getMessage(), suppressed);
+        }
+    }
+
+    public String getUserNameFromJwtToken(String token) {
+        return jwtParser.parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return parseJwtClaims(authToken) != null;
     }
 }
@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+/**
+ * Table de hachage immuable long -> long, à adressage ouvert sur deux tableaux primitifs : environ 32 octets
+ * par entrée, sans objet Long ni nœud d'entrée. Une lecture est un calcul de hash et quelques comparaisons.
+ * <p>
+ * Les écritures produisent une nouvelle table (copie) : elles sont rares, les lectures concurrentes n'ont
+ * donc besoin d'aucun verrou. La clé 0 est réservée aux cases vides.
+ */
+final class LongLongMap {
+
+    static final LongLongMap EMPTY = new LongLongMap(new long[2], new long[2], 0);
+
+    private final long[] keys;
+    private final long[] values;
+    private final int size;
+
+    private LongLongMap(long[] keys, long[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * @return la valeur associée à la clé, ou {@code missing} si la clé est absente
+     */
+    long get(long key, long missing) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key && key != 0) {
+                return values[i];
+            }
+            if (k == 0) {
+                return missing;
+            }
+        }
+    }
+
+    /**
+     * @return une nouvelle table contenant aussi (key, value), qui remplace une valeur existante
+     */
+    LongLongMap with(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int capacity = capacityFor(size + 1);
+        long[] newKeys = new long[capacity];
+        long[] newValues = new long[capacity];
+        int newSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && keys[i] != key) {
+                insert(newKeys, newValues, keys[i], values[i]);
+                newSize++;
+            }
+        }
+        insert(newKeys, newValues, key, value);
+        return new LongLongMap(newKeys, newValues, newSize + 1);
+    }
+
+    static LongLongMap of(long[] keys, long[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values must have the same length");
+        }
+        int capacity = capacityFor(keys.length);
+        long[] newKeys = new long[capacity];
+        long[] newValues = new long[capacity];
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == 0) {
+                throw new IllegalArgumentException("Key 0 is reserved");
+            }
+            if (insert(newKeys, newValues, keys[i], values[i])) {
+                size++;
+            }
+        }
+        return new LongLongMap(newKeys, newValues, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true si la clé n'était pas encore présente
+     */
+    private static boolean insert(long[] keys, long[] values, long key, long value) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            if (keys[i] == 0 || keys[i] == key) {
+                boolean added = keys[i] == 0;
+                keys[i] = key;
+                values[i] = value;
+                return added;
+            }
+        }
+    }
+
+    // taux de remplissage ≤ 1/2 : les sondages restent courts
+    private static int capacityFor(int size) {
+        return Math.max(2, Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1);
+    }
+
+    private static int index(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongMap{size=" + size + ", capacity=" + keys.length + "}";
+    }
+}
@@ -0,0 +1,62 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limite de débit des messages de log par catégorie : au plus {@code permits} messages par fenêtre, les autres
+ * sont seulement comptés et leur nombre est rapporté avec le message suivant. Un client qui envoie des tokens
+ * invalides en boucle ne peut donc pas saturer les logs.
+ * <p>
+ * Sans verrou : au changement de fenêtre, quelques messages de plus peuvent passer, ce qui est sans importance.
+ */
+final class RateLimitedLog {
+
+    private final int permits;
+    private final long windowNanos;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    RateLimitedLog(int permits, long windowMs) {
+        this(permits, windowMs, System::nanoTime);
+    }
+
+    RateLimitedLog(int permits, long windowMs, LongSupplier nanoTime) {
+        this.permits = permits;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return -1 si le message doit être omis, sinon le nombre de messages omis de cette catégorie depuis le
+     * dernier écrit
+     */
+    long acquire(String category) {
+        Window window = windows.computeIfAbsent(category, key -> new Window(nanoTime.getAsLong()));
+        long now = nanoTime.getAsLong();
+        long start = window.start.get();
+        if (now - start >= windowNanos && window.start.compareAndSet(start, now)) {
+            window.count.set(0);
+        }
+        if (window.count.incrementAndGet() <= permits) {
+            return window.suppressed.getAndSet(0);
+        }
+        window.suppressed.incrementAndGet();
+        return -1;
+    }
+
+    private static final class Window {
+
+        final AtomicLong start;
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicLong suppressed = new AtomicLong();
+
+        Window(long start) {
+            this.start = new AtomicLong(start);
+        }
+    }
+}
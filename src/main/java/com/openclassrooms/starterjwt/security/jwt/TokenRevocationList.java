@@ -0,0 +1,133 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.models.TokenRevocation;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.TokenRevocationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Révocation des tokens par utilisateur : une date limite "émis avant", vérifiée par AuthTokenFilter à chaque
+ * requête en O(1) et sans requête SQL.
+ * <p>
+ * Les dates limites sont persistées dans token_revocations et tenues en mémoire dans une {@link LongLongMap}
+ * (id utilisateur -> secondes epoch), rechargée au démarrage puis périodiquement, ce qui propage aussi les
+ * révocations faites par une autre instance. Une révocation plus ancienne que la durée de vie d'un token
+ * d'accès ne sert plus à rien : elle est purgée, ce qui garde la table petite.
+ */
+@Slf4j
+@Component
+public class TokenRevocationList {
+
+    private final TokenRevocationRepository tokenRevocationRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long jwtExpirationSeconds;
+    private final Clock clock;
+
+    private volatile LongLongMap revokedBefore = LongLongMap.EMPTY;
+
+    @Autowired
+    public TokenRevocationList(TokenRevocationRepository tokenRevocationRepository,
+                               RefreshTokenRepository refreshTokenRepository,
+                               @Value("${oc.app.jwtExpirationMs}") long jwtExpirationMs) {
+        this(tokenRevocationRepository, refreshTokenRepository, jwtExpirationMs, Clock.systemUTC());
+    }
+
+    TokenRevocationList(TokenRevocationRepository tokenRevocationRepository,
+                        RefreshTokenRepository refreshTokenRepository,
+                        long jwtExpirationMs,
+                        Clock clock) {
+        this.tokenRevocationRepository = tokenRevocationRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtExpirationSeconds = Math.ceilDiv(jwtExpirationMs, 1000L);
+        this.clock = clock;
+    }
+
+    /**
+     * @param issuedAt "iat" du token en millisecondes epoch, null si absent
+     * @return true si le token a été émis avant la dernière révocation de l'utilisateur. Le claim "iat" étant à
+     * la seconde près, un token émis dans la seconde même de la révocation est aussi refusé.
+     */
+    public boolean isRevoked(Long userId, Long issuedAt) {
+        if (userId == null || userId == 0) {
+            return false;
+        }
+        long cutoff = revokedBefore.get(userId, Long.MIN_VALUE);
+        if (cutoff == Long.MIN_VALUE) {
+            return false;
+        }
+        return issuedAt == null || Math.floorDiv(issuedAt, 1000L) <= cutoff;
+    }
+
+    /**
+     * Révoque tous les tokens d'accès déjà émis pour l'utilisateur, ainsi que ses refresh tokens.
+     * <p>
+     * Les écritures rejoignent la transaction de l'appelant : la révocation est validée avec, par exemple, la
+     * suppression du compte, ou pas du tout. La table en mémoire n'est mise à jour qu'après la validation, sous
+     * le même verrou que {@link #reload()} : un rechargement concurrent ne peut pas effacer une révocation qu'il
+     * n'aurait pas encore vue en base.
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        long now = clock.instant().getEpochSecond();
+        tokenRevocationRepository.save(new TokenRevocation(userId, now));
+        refreshTokenRepository.deleteByUserId(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(userId, now);
+                }
+            });
+        } else {
+            apply(userId, now);
+        }
+    }
+
+    private synchronized void apply(Long userId, long revokedBefore) {
+        this.revokedBefore = this.revokedBefore.with(userId, revokedBefore);
+    }
+
+    /**
+     * Chargement initial, avant que le filtre ne serve la moindre requête.
+     */
+    @PostConstruct
+    void init() {
+        reload();
+    }
+
+    /**
+     * Purge les révocations expirées puis recharge la table en mémoire.
+     */
+    @Scheduled(initialDelayString = "${oc.app.tokenRevocationReloadMs:30000}",
+            fixedDelayString = "${oc.app.tokenRevocationReloadMs:30000}")
+    public synchronized void reload() {
+        long expiredBefore = clock.instant().getEpochSecond() - jwtExpirationSeconds;
+        tokenRevocationRepository.deleteOlderThan(expiredBefore);
+
+        List<TokenRevocation> revocations = tokenRevocationRepository.findAll();
+        long[] userIds = new long[revocations.size()];
+        long[] cutoffs = new long[revocations.size()];
+        for (int i = 0; i < revocations.size(); i++) {
+            userIds[i] = revocations.get(i).getUserId();
+            cutoffs[i] = revocations.get(i).getRevokedBefore();
+        }
+        revokedBefore = LongLongMap.of(userIds, cutoffs);
+        log.debug("Token revocation list reloaded: {}", revokedBefore);
+    }
+
+    int size() {
+        return revokedBefore.size();
+    }
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Informations retenues d'un token dont la signature a déjà été vérifiée.
+ *
+ * @param subject   email de l'utilisateur (claim "sub")
+ * @param expiresAt expiration du token en millisecondes epoch (claim "exp"), null si absente
+ * @param userId    id de l'utilisateur, null pour un token émis avant l'ajout des claims du principal
+ * @param type      claim "typ", null pour un token d'accès
+ * @param issuedAt  émission du token en millisecondes epoch (claim "iat", à la seconde), null si absente
+ */
+public record VerifiedToken(String subject,
+                            Long expiresAt,
+                            Long userId,
+                            String firstName,
+                            String lastName,
+                            Boolean admin,
+                            String type,
+                            Long issuedAt) {
+
+    static VerifiedToken from(Claims claims) {
+        Date expiration = claims.getExpiration();
+        Date issuedAt = claims.getIssuedAt();
+        return new VerifiedToken(claims.getSubject(),
+                expiration != null ? expiration.getTime() : null,
+                claims.get(JwtUtils.CLAIM_USER_ID, Long.class),
+                claims.get(JwtUtils.CLAIM_FIRST_NAME, String.class),
+                claims.get(JwtUtils.CLAIM_LAST_NAME, String.class),
+                claims.get(JwtUtils.CLAIM_ADMIN, Boolean.class),
+                claims.get(JwtUtils.CLAIM_TYPE, String.class),
+                issuedAt != null ? issuedAt.getTime() : null);
+    }
+
+    /**
+     * @return true si le token porte assez d'informations pour reconstruire le principal sans la base
+     */
+    public boolean hasPrincipalClaims() {
+        return userId != null;
+    }
+
+    /**
+     * @return true pour un refresh token, qui ne doit jamais authentifier un appel à l'API
+     */
+    public boolean isRefreshToken() {
+        return JwtUtils.TYPE_REFRESH.equals(type);
+    }
+}
@@ -2,14 +2,16 @@ package com.openclassrooms.starterjwt.security.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     UserRepository userRepository;
 
     UserDetailsServiceImpl(UserRepository userRepository) {
@@ -18,6 +20,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
     @Override
     @Transactional
+    @Timed("yoga.auth.user.load")
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
@@ -28,8 +31,30 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 .username(user.getEmail())
                 .lastName(user.getLastName())
                 .firstName(user.getFirstName())
+                .admin(user.isAdmin())
                 .password(user.getPassword())
                 .build();
     }
 
+    /**
+     * Appelé après une connexion réussie dont le hash est d'un coût inférieur au coût configuré, une fois le
+     * nouveau hash calculé (cf. RehashingAuthenticationProvider) : seul le mot de passe est réécrit, sans
+     * recharger l'utilisateur.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+
+        UserDetailsImpl details = (UserDetailsImpl) user;
+        return UserDetailsImpl
+                .builder()
+                .id(details.getId())
+                .username(details.getUsername())
+                .lastName(details.getLastName())
+                .firstName(details.getFirstName())
+                .admin(details.getAdmin())
+                .password(newPassword)
+                .build();
+    }
 }
@@ -1,13 +1,16 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.configuration.RequestTiming;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.RefreshTokenRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -26,37 +29,58 @@ public class AuthService {
     private final JwtUtils jwtUtils;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final RefreshTokenService refreshTokenService;
 
     public AuthService(AuthenticationManager authenticationManager,
                        PasswordEncoder passwordEncoder,
                        JwtUtils jwtUtils,
-                       UserRepository userRepository) {
+                       UserRepository userRepository,
+                       RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.refreshTokenService = refreshTokenService;
     }
 
+    /**
+     * La vérification BCrypt s'exécute sur le pool dédié de l'encodeur, pas sur le thread de la requête.
+     * La réponse porte aussi un refresh token, qui évite de repasser par BCrypt à l'expiration du token d'accès.
+     *
+     * @throws com.openclassrooms.starterjwt.exception.ServiceOverloadedException si ce pool est saturé.
+     */
+    @Timed("yoga.auth.login")
     public JwtResponse login(LoginRequest loginRequest) {
+        RequestTiming timing = RequestTiming.current();
+        long mark = timing != null ? timing.mark() : 0;
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        if (timing != null) {
+            timing.addAuth(mark);
+        }
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-        boolean isAdmin = false;
-        User user = this.userRepository.findByEmail(userDetails.getUsername()).orElse(null);
-        if (user != null) {
-            isAdmin = user.isAdmin();
-        }
+        // Le flag admin est déjà porté par le principal chargé lors de l'authentification.
+        boolean isAdmin = Boolean.TRUE.equals(userDetails.getAdmin());
 
-        return new JwtResponse(jwt,
+        JwtResponse response = new JwtResponse(jwt,
                 userDetails.getId(),
                 userDetails.getUsername(),
                 userDetails.getFirstName(),
                 userDetails.getLastName(),
                 isAdmin);
+        response.setRefreshToken(refreshTokenService.issue(userDetails));
+        return response;
+    }
+
+    /**
+     * @throws SecurityException si le refresh token est invalide ou a déjà été utilisé.
+     */
+    public JwtResponse refresh(RefreshTokenRequest refreshTokenRequest) {
+        return refreshTokenService.refresh(refreshTokenRequest.getRefreshToken());
     }
 
     /**
@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Réponse JSON déjà sérialisée, avec son ETag fort (empreinte SHA-256 du contenu) calculé une seule fois.
+ */
+public record JsonSnapshot(byte[] body, String etag) {
+
+    public static JsonSnapshot of(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new JsonSnapshot(body, "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
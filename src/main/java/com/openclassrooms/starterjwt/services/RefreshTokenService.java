@@ -0,0 +1,143 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.payload.response.JwtResponse;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.UserView;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Émission et rotation des refresh tokens.
+ * <p>
+ * Un refresh est vérifié par sa signature puis consommé par une seule suppression en base, sans mot de passe.
+ * L'utilisateur est relu par sa clé primaire (projection, sans le hash) : les deux nouveaux tokens portent son
+ * nom et son rôle actuels, pas ceux du token présenté. Chaque refresh émet un nouveau refresh token (rotation) ;
+ * présenter un token déjà consommé révoque tous ceux de l'utilisateur.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    static final int CLEANUP_BATCH_SIZE = 10_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtils jwtUtils;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               JwtUtils jwtUtils) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.jwtUtils = jwtUtils;
+    }
+
+    /**
+     * Enregistre l'empreinte d'un nouvel identifiant et retourne le refresh token signé qui le porte.
+     */
+    @Transactional
+    public String issue(UserDetailsImpl principal) {
+        String jti = newJti();
+        LocalDateTime expiresAt = LocalDateTime.now().plus(jwtUtils.getJwtRefreshExpirationMs(), ChronoUnit.MILLIS);
+
+        refreshTokenRepository.save(new RefreshToken()
+                .setTokenHash(hash(jti))
+                .setUser(userRepository.getReferenceById(principal.getId()))
+                .setExpiresAt(expiresAt));
+
+        return jwtUtils.generateRefreshToken(principal, jti, Timestamp.valueOf(expiresAt));
+    }
+
+    /**
+     * Échange un refresh token contre un nouveau token d'accès et un nouveau refresh token.
+     * La révocation en cas de rejeu est conservée malgré l'exception.
+     *
+     * @throws SecurityException si le token est invalide, expiré, n'est pas un refresh token, a déjà été utilisé,
+     *                           ou si l'utilisateur n'existe plus
+     */
+    @Transactional(noRollbackFor = SecurityException.class)
+    public JwtResponse refresh(String refreshToken) {
+        Claims claims = jwtUtils.parseJwtClaims(refreshToken);
+        if (claims == null || claims.getId() == null
+                || !JwtUtils.TYPE_REFRESH.equals(claims.get(JwtUtils.CLAIM_TYPE, String.class))) {
+            throw new SecurityException("Invalid refresh token");
+        }
+
+        Long userId = claims.get(JwtUtils.CLAIM_USER_ID, Long.class);
+        if (refreshTokenRepository.consume(hash(claims.getId()), LocalDateTime.now()) == 0) {
+            // signature valide mais token déjà consommé ou révoqué : rejeu probable, on révoque tout
+            int revoked = refreshTokenRepository.deleteByUserId(userId);
+            log.warn("Refresh token reuse for user {}, {} token(s) revoked", userId, revoked);
+            throw new SecurityException("Refresh token already used");
+        }
+
+        UserView user = userRepository.findViewById(userId)
+                .orElseThrow(() -> new SecurityException("Refresh token user no longer exists"));
+        UserDetailsImpl principal = UserDetailsImpl
+                .builder()
+                .id(user.id())
+                .username(user.email())
+                .firstName(user.firstName())
+                .lastName(user.lastName())
+                .admin(user.admin())
+                .build();
+
+        JwtResponse response = new JwtResponse(jwtUtils.generateJwtToken(principal),
+                principal.getId(),
+                principal.getUsername(),
+                principal.getFirstName(),
+                principal.getLastName(),
+                Boolean.TRUE.equals(principal.getAdmin()));
+        response.setRefreshToken(issue(principal));
+        return response;
+    }
+
+    /**
+     * Purge périodique des tokens expirés, par lots de {@value #CLEANUP_BATCH_SIZE} lignes.
+     *
+     * @return le nombre de tokens supprimés
+     */
+    @Scheduled(fixedDelayString = "${oc.app.refreshTokenCleanupMs:3600000}")
+    public int deleteExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpired(now, CLEANUP_BATCH_SIZE);
+            total += deleted;
+        } while (deleted == CLEANUP_BATCH_SIZE);
+        return total;
+    }
+
+    static String newJti() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    static byte[] hash(String jti) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(jti.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SessionView;
+
+import java.util.List;
+
+/**
+ * Une page de sessions et le curseur de la page suivante (null s'il n'y en a plus).
+ */
+public record SessionPage(List<SessionView> sessions, String nextCursor) {
+}
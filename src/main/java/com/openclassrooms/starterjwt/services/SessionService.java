@@ -2,20 +2,61 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.ParticipationBatchRequest;
+import com.openclassrooms.starterjwt.payload.request.ParticipationBatchRequest.Participation;
+import com.openclassrooms.starterjwt.payload.response.ParticipationBatchResponse;
+import com.openclassrooms.starterjwt.payload.response.ParticipationBatchResponse.ParticipationResult;
+import com.openclassrooms.starterjwt.payload.response.ParticipationBatchResponse.ParticipationStatus;
+import com.openclassrooms.starterjwt.repository.LongArrayList;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionRepositoryCustom;
+import com.openclassrooms.starterjwt.repository.SessionSpecifications;
+import com.openclassrooms.starterjwt.repository.SessionView;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
+/**
+ * Chaque opération publique est chronométrée (métrique yoga.session.service, tag method).
+ */
 @Service
+@Timed("yoga.session.service")
 public class SessionService {
 
+    private static final Sort KEYSET_ORDER = Sort.by("date", "id");
+
+    @Value("${oc.app.sessionPageDefaultSize:20}")
+    private int defaultPageSize;
+
+    @Value("${oc.app.sessionPageMaxSize:100}")
+    private int maxPageSize;
+
+    @Value("${oc.app.sessionListMaxSize:1000}")
+    private int maxListSize;
+
     private final SessionRepository sessionRepository;
     private final UserRepository userRepository;
 
@@ -24,10 +65,47 @@ public class SessionService {
         this.userRepository = userRepository;
     }
 
+    /**
+     * @throws IllegalArgumentException si les participants dépassent la capacité
+     */
     public Session create(Session session) {
+        checkCapacity(session);
         return this.sessionRepository.save(session);
     }
 
+    /**
+     * Création en masse : les sessions puis leurs participants sont insérés en deux lots JDBC, au lieu
+     * d'une insertion par session et par participant.
+     *
+     * @throws IllegalArgumentException si des sessions ont plus de participants que leur capacité, avec leurs
+     *                                  positions dans la liste ; rien n'est inséré
+     */
+    @Transactional
+    public List<Session> createAll(List<Session> sessions) {
+        List<Integer> overCapacity = new ArrayList<>();
+        for (int i = 0; i < sessions.size(); i++) {
+            if (exceedsCapacity(sessions.get(i))) {
+                overCapacity.add(i);
+            }
+        }
+        if (!overCapacity.isEmpty()) {
+            throw new IllegalArgumentException("Error: Participants exceed capacity for sessions " + overCapacity + "!");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        sessions.forEach(session -> session.setCreatedAt(now).setUpdatedAt(now));
+        this.sessionRepository.insertSessions(sessions);
+
+        Map<Long, List<Long>> participants = new HashMap<>();
+        for (Session session : sessions) {
+            if (session.getUsers() != null && !session.getUsers().isEmpty()) {
+                participants.put(session.getId(), session.getUsers().stream().map(User::getId).collect(Collectors.toList()));
+            }
+        }
+        this.sessionRepository.insertParticipants(participants);
+        return sessions;
+    }
+
     public void delete(Long id) {
         this.sessionRepository.deleteById(id);
     }
@@ -46,58 +124,263 @@ public class SessionService {
         return true;
     }
 
-    public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+    public SessionRepository.TableVersion findTableVersion() {
+        return this.sessionRepository.findTableVersion();
     }
 
-    public Session getById(Long id) {
-        return this.sessionRepository.findById(id).orElse(null);
+    /**
+     * Liste sans pagination demandée : au plus oc.app.sessionListMaxSize sessions triées par (date, id), le
+     * curseur de la page retournée signale une liste tronquée. Les listes complètes passent par l'export.
+     * <p>
+     * Lectures en projection, dans une transaction en lecture seule : Hibernate y passe en FlushMode.MANUAL et
+     * ne cherche pas de modifications à écrire.
+     */
+    @Transactional(readOnly = true)
+    public SessionPage findAll() {
+        return page(Specification.allOf(), this.maxListSize);
     }
 
-    public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+    /**
+     * Parcourt toutes les sessions, une à la fois, pour un export en flux (cf. SessionController#export).
+     */
+    @Transactional(readOnly = true)
+    public void forEachSession(SessionRepositoryCustom.SessionRowHandler action) {
+        this.sessionRepository.forEachSession(action);
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
+    /**
+     * Page de sessions triées par (date, id), reprise après le curseur donné (pagination par clé).
+     * Une ligne de plus que demandé est lue pour savoir s'il existe une page suivante.
+     *
+     * @param cursor    curseur retourné par la page précédente, null pour la première page
+     * @param limit     taille de page souhaitée, bornée à oc.app.sessionPageMaxSize (défaut si null)
+     * @param from      date minimale incluse, ignorée si null
+     * @param to        date maximale exclue, ignorée si null
+     * @param teacherId professeur, ignoré si null
+     * @throws IllegalArgumentException si le curseur ou la taille de page est invalide
+     */
+    @Transactional(readOnly = true)
+    public SessionPage findPage(String cursor, Integer limit, Date from, Date to, Long teacherId) {
+        int pageSize = limit == null ? this.defaultPageSize : limit;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Error: limit must be positive!");
+        }
+        pageSize = Math.min(pageSize, this.maxPageSize);
 
-        if (session == null || user == null) {
-            throw new ResponseStatusException(NOT_FOUND);
+        List<Specification<Session>> criteria = new ArrayList<>();
+        if (cursor != null) {
+            SessionCursor position = SessionCursor.decode(cursor);
+            criteria.add(SessionSpecifications.after(position.date(), position.id()));
+        }
+        if (from != null) {
+            criteria.add(SessionSpecifications.dateFrom(from));
+        }
+        if (to != null) {
+            criteria.add(SessionSpecifications.dateBefore(to));
         }
+        if (teacherId != null) {
+            criteria.add(SessionSpecifications.teacher(teacherId));
+        }
+
+        return page(Specification.allOf(criteria), pageSize);
+    }
 
-        boolean alreadyParticipate = session.getUsers().stream()
-                .anyMatch(o -> o.getId().equals(userId));
+    private SessionPage page(Specification<Session> specification, int pageSize) {
+        List<SessionView> sessions = this.sessionRepository.findViews(specification, KEYSET_ORDER, pageSize + 1);
 
-        if (alreadyParticipate) {
-            throw new ResponseStatusException(BAD_REQUEST);
+        if (sessions.size() <= pageSize) {
+            return new SessionPage(sessions, null);
         }
 
-        session.getUsers().add(user);
-        this.sessionRepository.save(session);
+        List<SessionView> page = sessions.subList(0, pageSize);
+        SessionView last = page.get(pageSize - 1);
+        return new SessionPage(page, new SessionCursor(last.date(), last.id()).encode());
     }
 
-    public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
+    /**
+     * @return les ids des participants par id de session, triés, en listes non modifiables adossées à des
+     * tableaux de longs (les sessions sans participant sont absentes)
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findParticipantIds(Collection<Long> sessionIds) {
+        Map<Long, List<Long>> participants = new HashMap<>();
+        this.sessionRepository.findParticipantIdArrays(sessionIds)
+                .forEach((sessionId, userIds) -> participants.put(sessionId, LongArrayList.of(userIds)));
+        return participants;
+    }
 
-        if (session == null) {
+    @Transactional(readOnly = true)
+    public SessionView getById(Long id) {
+        return this.sessionRepository.findViewById(id).orElse(null);
+    }
+
+    /**
+     * Session verrouillée comme pour une inscription, puis champs recopiés sur la session gérée plutôt que de
+     * fusionner l'entité détachée. Les participants ne sont pas recopiés : seules les différences avec les
+     * participations en base sont écrites dans PARTICIPATE, sous le verrou, ce qui ne peut ni dépasser la
+     * capacité ni effacer une inscription validée entre-temps par un autre appel.
+     *
+     * @throws IllegalArgumentException si les participants dépassent la capacité
+     */
+    @Transactional
+    public Session update(Long id, Session session) {
+        checkCapacity(session);
+        Session existing = this.sessionRepository.findByIdForUpdate(id).orElse(null);
+        if (existing == null) {
+            session.setId(id);
+            return this.sessionRepository.save(session);
+        }
+
+        existing.setName(session.getName())
+                .setDate(session.getDate())
+                .setDescription(session.getDescription())
+                .setCapacity(session.getCapacity())
+                .setTeacher(session.getTeacher());
+
+        Set<Long> wanted = participantIds(session);
+        long[] participating = this.sessionRepository.findParticipantIdArrays(List.of(id)).get(id);
+        List<Long> current = participating == null ? LongArrayList.empty() : LongArrayList.of(participating);
+        List<Long> removed = current.stream().filter(userId -> !wanted.contains(userId)).collect(Collectors.toList());
+        wanted.removeAll(current);
+        if (!removed.isEmpty()) {
+            this.sessionRepository.removeParticipants(id, removed);
+        }
+        if (!wanted.isEmpty()) {
+            this.sessionRepository.insertParticipants(Map.of(id, new ArrayList<>(wanted)));
+        }
+        if (!removed.isEmpty() || !wanted.isEmpty()) {
+            this.sessionRepository.touch(List.of(id), LocalDateTime.now());
+        }
+        return existing;
+    }
+
+    private static Set<Long> participantIds(Session session) {
+        if (session.getUsers() == null) {
+            return new LinkedHashSet<>();
+        }
+        return session.getUsers().stream().map(User::getId).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * @throws IllegalArgumentException si la session a plus de participants que sa capacité
+     */
+    private static void checkCapacity(Session session) {
+        if (exceedsCapacity(session)) {
+            throw new IllegalArgumentException("Error: " + participantIds(session).size()
+                    + " participants exceed capacity " + session.getCapacity() + "!");
+        }
+    }
+
+    private static boolean exceedsCapacity(Session session) {
+        return session.getCapacity() != null && participantIds(session).size() > session.getCapacity();
+    }
+
+    /**
+     * Verrouille la session puis l'inscription est une seule insertion conditionnelle dans PARTICIPATE : le coût
+     * ne dépend pas du nombre de participants, et les inscriptions concurrentes ne peuvent pas dépasser la capacité.
+     * Les causes d'échec ne sont recherchées qu'en cas d'échec, pour choisir le statut d'erreur. En cas de succès,
+     * updated_at de la session est mis à jour pour invalider ses validateurs HTTP.
+     *
+     * @throws ResponseStatusException 404 si la session ou l'utilisateur n'existe pas, 400 s'il participe déjà,
+     *                                 409 si la session est complète
+     */
+    @Transactional
+    public void participate(Long id, Long userId) {
+        if (this.sessionRepository.findByIdForUpdate(id).isEmpty()) {
             throw new ResponseStatusException(NOT_FOUND);
         }
 
-        boolean alreadyParticipate = session.getUsers().stream()
-                .anyMatch(o -> o.getId().equals(userId));
+        int inserted;
+        try {
+            inserted = this.sessionRepository.addParticipant(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            // filet de sécurité : la contrainte unique refuse un doublon qui aurait échappé au verrou
+            throw new ResponseStatusException(BAD_REQUEST);
+        }
+
+        if (inserted == 0) {
+            if (!this.userRepository.existsById(userId)) {
+                throw new ResponseStatusException(NOT_FOUND);
+            }
+            if (this.sessionRepository.isParticipant(id, userId)) {
+                throw new ResponseStatusException(BAD_REQUEST);
+            }
+            throw new ResponseStatusException(CONFLICT);
+        }
+        this.sessionRepository.touch(List.of(id), LocalDateTime.now());
+    }
+
+    /**
+     * Une seule suppression dans PARTICIPATE, sans charger la session ni ses participants, puis mise à jour
+     * de updated_at de la session.
+     *
+     * @throws ResponseStatusException 404 si la session n'existe pas, 400 si l'utilisateur n'y participe pas
+     */
+    @Transactional
+    public void noLongerParticipate(Long id, Long userId) {
+        int deleted = this.sessionRepository.removeParticipant(id, userId);
 
-        if (!alreadyParticipate) {
+        if (deleted == 0) {
+            if (!this.sessionRepository.existsById(id)) {
+                throw new ResponseStatusException(NOT_FOUND);
+            }
             throw new ResponseStatusException(BAD_REQUEST);
         }
+        this.sessionRepository.touch(List.of(id), LocalDateTime.now());
+    }
 
-        session.setUsers(
-                session.getUsers().stream()
-                        .filter(user -> !user.getId().equals(userId))
-                        .collect(Collectors.toList())
-        );
+    /**
+     * Inscriptions en masse. Les sessions concernées sont verrouillées, puis sessions, utilisateurs, participations
+     * existantes et effectifs sont lus en une requête chacun ; les nouvelles lignes sont insérées en lots JDBC.
+     * Une inscription refusée n'empêche pas les autres.
+     *
+     * @return le résultat de chaque inscription, dans l'ordre de la requête
+     */
+    @Transactional
+    public ParticipationBatchResponse participateAll(ParticipationBatchRequest request) {
+        List<Participation> participations = request.getParticipations();
+        Set<Long> sessionIds = participations.stream().map(Participation::getSessionId).collect(Collectors.toSet());
+        Set<Long> userIds = participations.stream().map(Participation::getUserId).collect(Collectors.toSet());
 
-        this.sessionRepository.save(session);
+        Map<Long, Session> sessions = this.sessionRepository.findAllByIdForUpdate(sessionIds).stream()
+                .collect(Collectors.toMap(Session::getId, Function.identity()));
+        Set<Long> users = new HashSet<>(this.userRepository.findExistingIds(userIds));
+        Map<Long, Set<Long>> participants = this.sessionRepository.findExistingParticipations(sessionIds, userIds).stream()
+                .collect(Collectors.groupingBy(SessionRepository.ParticipantId::getSessionId,
+                        Collectors.mapping(SessionRepository.ParticipantId::getUserId, Collectors.toSet())));
+        Map<Long, Long> counts = this.sessionRepository.countParticipants(sessionIds).stream()
+                .collect(Collectors.toMap(SessionRepository.ParticipantCount::getSessionId,
+                        SessionRepository.ParticipantCount::getParticipants));
+
+        List<ParticipationResult> results = new ArrayList<>(participations.size());
+        Map<Long, List<Long>> enrolled = new HashMap<>();
+        for (Participation participation : participations) {
+            Long sessionId = participation.getSessionId();
+            Long userId = participation.getUserId();
+            Session session = sessions.get(sessionId);
+
+            ParticipationStatus status;
+            if (session == null) {
+                status = ParticipationStatus.SESSION_NOT_FOUND;
+            } else if (!users.contains(userId)) {
+                status = ParticipationStatus.USER_NOT_FOUND;
+            } else if (participants.computeIfAbsent(sessionId, id -> new HashSet<>()).contains(userId)) {
+                status = ParticipationStatus.ALREADY_PARTICIPATING;
+            } else if (session.getCapacity() != null && counts.getOrDefault(sessionId, 0L) >= session.getCapacity()) {
+                status = ParticipationStatus.SESSION_FULL;
+            } else {
+                status = ParticipationStatus.ENROLLED;
+                participants.get(sessionId).add(userId);
+                counts.merge(sessionId, 1L, Long::sum);
+                enrolled.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(userId);
+            }
+            results.add(new ParticipationResult(sessionId, userId, status));
+        }
+
+        if (!enrolled.isEmpty()) {
+            this.sessionRepository.insertParticipants(enrolled);
+            this.sessionRepository.touch(enrolled.keySet(), LocalDateTime.now());
+        }
+        return new ParticipationBatchResponse(results);
     }
 }
@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Vide les caches du catalogue quand un professeur est créé, modifié ou supprimé. Dans une transaction,
+ * le vidage attend le commit : sinon une lecture concurrente pourrait remettre en cache l'ancien état.
+ * <p>
+ * Les caches sont propres à l'instance : les autres répliques servent l'ancien état jusqu'à expiration de leurs
+ * entrées (expireAfterWrite de spring.cache.caffeine.spec, 10 min).
+ * <p>
+ * Dépend du CacheManager et non de TeacherService, qui dépend lui-même de l'EntityManagerFactory
+ * qui instancie ce listener.
+ */
+@Component
+public class TeacherCacheEvictionListener {
+
+    private static final List<String> CACHES = List.of(
+            TeacherService.TEACHER_CACHE, TeacherService.TEACHERS_JSON_CACHE);
+
+    private final CacheManager cacheManager;
+
+    public TeacherCacheEvictionListener(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onChange(Teacher teacher) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAll();
+                }
+            });
+        } else {
+            evictAll();
+        }
+    }
+
+    private void evictAll() {
+        for (String name : CACHES) {
+            Cache cache = this.cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
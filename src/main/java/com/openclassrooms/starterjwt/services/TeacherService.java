@@ -1,24 +1,119 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Le catalogue des professeurs est petit et ne change presque jamais : il est servi depuis les caches
+ * (Caffeine, TTL et taille configurés par spring.cache.caffeine.spec), vidés à chaque écriture d'un Teacher
+ * par {@link TeacherCacheEvictionListener}.
+ * <p>
+ * Les caches ne contiennent pas d'entités, partagées entre threads et rattachables à une session Hibernate :
+ * le cache teacher garde des TeacherDto, dont seules des copies sortent.
+ */
 @Service
 public class TeacherService {
+    public static final String TEACHER_CACHE = "teacher";
+    public static final String TEACHERS_JSON_CACHE = "teachersJson";
+
     private final TeacherRepository teacherRepository;
+    private final TeacherMapper teacherMapper;
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    public TeacherService(TeacherRepository teacherRepository,
+                          TeacherMapper teacherMapper,
+                          ObjectMapper objectMapper,
+                          CacheManager cacheManager) {
         this.teacherRepository = teacherRepository;
+        this.teacherMapper = teacherMapper;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Réponse JSON de la liste des professeurs et son ETag, calculés une fois puis servis tels quels.
+     */
+    @Cacheable(TEACHERS_JSON_CACHE)
+    public JsonSnapshot findAllAsJson() {
+        try {
+            return JsonSnapshot.of(this.objectMapper.writeValueAsBytes(this.teacherMapper.toDto(this.teacherRepository.findAll())));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize teachers", e);
+        }
+    }
+
+    /**
+     * Ids de professeurs connus parmi ceux donnés : ceux absents du cache sont lus en une seule requête puis mis
+     * en cache.
+     */
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Cache cache = this.cacheManager.getCache(TEACHER_CACHE);
+
+        Set<Long> existing = new HashSet<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (cache != null && cache.get(id, TeacherDto.class) != null) {
+                existing.add(id);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Teacher teacher : this.teacherRepository.findAllById(missing)) {
+                if (cache != null) {
+                    cache.put(teacher.getId(), this.teacherMapper.toDto(teacher));
+                }
+                existing.add(teacher.getId());
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Référence (proxy non initialisé) vers un professeur dont l'existence est déjà connue : propre au contexte de
+     * persistance courant, elle suffit pour poser la clé étrangère d'une session.
+     */
+    public Teacher getReference(Long id) {
+        return this.teacherRepository.getReferenceById(id);
     }
 
-    public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+    /**
+     * @return une copie du professeur en cache, ou null s'il n'existe pas
+     */
+    public TeacherDto findById(Long id) {
+        Cache cache = this.cacheManager.getCache(TEACHER_CACHE);
+        TeacherDto teacher = cache != null ? cache.get(id, TeacherDto.class) : null;
+        if (teacher == null) {
+            teacher = this.teacherRepository.findById(id).map(this.teacherMapper::toDto).orElse(null);
+            if (teacher == null) {
+                return null;
+            }
+            if (cache != null) {
+                cache.put(id, teacher);
+            }
+        }
+        return new TeacherDto(teacher.getId(), teacher.getLastName(), teacher.getFirstName(), teacher.getCreatedAt(),
+                teacher.getUpdatedAt());
     }
 
-    public Teacher findById(Long id) {
-        return this.teacherRepository.findById(id).orElse(null);
+    @CacheEvict(cacheNames = {TEACHER_CACHE, TEACHERS_JSON_CACHE}, allEntries = true)
+    public void evictAll() {
     }
 }
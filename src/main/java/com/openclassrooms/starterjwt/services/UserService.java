@@ -2,16 +2,24 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.UserView;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final TokenRevocationList tokenRevocationList;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, TokenRevocationList tokenRevocationList) {
         this.userRepository = userRepository;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     public void delete(Long id) {
@@ -19,11 +27,14 @@ public class UserService {
     }
 
     /**
-     * Supprime l'utilisateur seulement si l'email du demandeur correspond à l'email du compte.
+     * Supprime l'utilisateur seulement si l'email du demandeur correspond à l'email du compte, puis révoque
+     * ses tokens : ils ne sont plus acceptés, même sans relecture de l'utilisateur en base. Suppression et
+     * révocation sont validées dans la même transaction.
      *
      * @return true si suppression effectuée, false si l'utilisateur n'existe pas
      * @throws SecurityException si le demandeur n'est pas autorisé
      */
+    @Transactional
     public boolean deleteIfOwner(Long id, String requesterEmail) {
         User user = this.userRepository.findById(id).orElse(null);
         if (user == null) {
@@ -35,10 +46,30 @@ public class UserService {
         }
 
         this.userRepository.deleteById(id);
+        this.tokenRevocationList.revokeAll(id);
         return true;
     }
 
-    public User findById(Long id) {
-        return this.userRepository.findById(id).orElse(null);
+    @Transactional(readOnly = true)
+    public UserView findById(Long id) {
+        return this.userRepository.findViewById(id).orElse(null);
+    }
+
+    /**
+     * @return les ids existants parmi ceux donnés, lus en une seule requête
+     */
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(this.userRepository.findExistingIds(ids));
+    }
+
+    /**
+     * Référence (proxy non initialisé) vers un utilisateur dont l'existence est déjà connue :
+     * suffit pour poser une clé étrangère sans SELECT.
+     */
+    public User getReference(Long id) {
+        return this.userRepository.getReferenceById(id);
     }
 }
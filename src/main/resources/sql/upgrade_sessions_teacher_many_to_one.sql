@@ -0,0 +1,26 @@
+-- Bases créées quand Session.teacher était un @OneToOne : Hibernate avait posé un index unique sur
+-- sessions.teacher_id, que ddl-auto: update ne supprime pas. Une deuxième session du même professeur échouait.
+-- Le nom de cet index est généré par Hibernate : il est retrouvé dans information_schema.
+
+-- index non unique qui sert la clé étrangère une fois l'index unique supprimé (déclaré sur Session)
+SET @has_index = (SELECT COUNT(*) FROM information_schema.statistics
+                  WHERE table_schema = DATABASE() AND table_name = 'sessions'
+                    AND index_name = 'idx_sessions_teacher_date_id');
+SET @ddl = IF(@has_index = 0,
+              'CREATE INDEX idx_sessions_teacher_date_id ON sessions (teacher_id, date, id)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @unique_index = (SELECT index_name FROM information_schema.statistics
+                     WHERE table_schema = DATABASE() AND table_name = 'sessions'
+                       AND non_unique = 0 AND index_name <> 'PRIMARY'
+                     GROUP BY index_name
+                     HAVING COUNT(*) = 1 AND MAX(column_name) = 'teacher_id');
+SET @ddl = IF(@unique_index IS NULL,
+              'DO 0',
+              CONCAT('ALTER TABLE sessions DROP INDEX `', @unique_index, '`'));
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,5 @@
+-- Bases créées avant le passage de updated_at à la microseconde (validateur des GET conditionnels) :
+-- ddl-auto: update ne modifie pas les colonnes existantes.
+ALTER TABLE sessions MODIFY updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6);
+ALTER TABLE users MODIFY updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6);
+ALTER TABLE teachers MODIFY updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6);
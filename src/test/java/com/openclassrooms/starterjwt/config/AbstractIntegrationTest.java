@@ -3,23 +3,32 @@ package com.openclassrooms.starterjwt.config;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.MySQLContainer;
-import org.testcontainers.junit.jupiter.Container;
-import org.testcontainers.junit.jupiter.Testcontainers;
 
+/**
+ * MySQL lancé une fois par Testcontainers pour tous les tests d'intégration, sauf si -Dit.jdbcUrl=...
+ * (avec -Dit.jdbcUser / -Dit.jdbcPassword) désigne une base existante, vide : le schéma y est recréé.
+ */
 @org.springframework.test.context.ActiveProfiles("test")
-@Testcontainers
 public abstract class AbstractIntegrationTest {
 
-    @Container
+    private static final String JDBC_URL = System.getProperty("it.jdbcUrl");
+
     @SuppressWarnings("resource")
     public static final MySQLContainer<?> MYSQL =
             new MySQLContainer<>("mysql:8.4.0")
                     .withDatabaseName("testdb")
                     .withUsername("test")
-                    .withPassword("test");
+                    .withPassword("test")
+                    .withUrlParam("rewriteBatchedStatements", "true");
 
     @DynamicPropertySource
     static void overrideProps(DynamicPropertyRegistry registry) {
+        if (JDBC_URL != null) {
+            registry.add("spring.datasource.url", () -> JDBC_URL);
+            registry.add("spring.datasource.username", () -> System.getProperty("it.jdbcUser", "test"));
+            registry.add("spring.datasource.password", () -> System.getProperty("it.jdbcPassword", "test"));
+            return;
+        }
         if (!MYSQL.isRunning()) MYSQL.start();
 
         String jdbcUrlIpv4 = MYSQL.getJdbcUrl().replace("localhost", "127.0.0.1");
@@ -28,4 +37,4 @@ public abstract class AbstractIntegrationTest {
         registry.add("spring.datasource.username", MYSQL::getUsername);
         registry.add("spring.datasource.password", MYSQL::getPassword);
     }
-}
\ No newline at end of file
+}
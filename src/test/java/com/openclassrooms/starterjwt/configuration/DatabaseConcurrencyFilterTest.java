@@ -0,0 +1,103 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DatabaseConcurrencyFilterTest {
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+
+    @Test
+    void doFilter_passesThrough_andReleasesPermit() throws Exception {
+        DatabaseConcurrencyFilter filter = new DatabaseConcurrencyFilter(2, 10, new ObjectMapper());
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request("/api/session"), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(filter.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void doFilter_returns503WithRetryAfter_whenAllPermitsHeld() throws Exception {
+        DatabaseConcurrencyFilter filter = new DatabaseConcurrencyFilter(1, 10, new ObjectMapper());
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blocking = (req, res) -> {
+            inside.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> {
+                filter.doFilter(request("/api/session"), new MockHttpServletResponse(), blocking);
+                return null;
+            });
+            assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("/api/session"), rejected, chain);
+
+            assertThat(rejected.getStatus()).isEqualTo(503);
+            assertThat(rejected.getHeader("Retry-After")).isEqualTo(DatabaseConcurrencyFilter.RETRY_AFTER_SECONDS);
+            assertThat(rejected.getContentAsString()).contains("Server busy");
+            assertThat(chain.getRequest()).isNull();
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            assertThat(filter.availablePermits()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void doFilter_ignoresRequestsOutsideApi() throws Exception {
+        DatabaseConcurrencyFilter filter = new DatabaseConcurrencyFilter(1, 10, new ObjectMapper());
+        filter.doFilter(request("/api/session"), new MockHttpServletResponse(), (req, res) -> {
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("/actuator/health"), new MockHttpServletResponse(), chain);
+            assertThat(chain.getRequest()).isNotNull();
+        });
+    }
+
+    @Test
+    void doFilter_ignoresAuthRequests_soLoginsCannotStarveReads() throws Exception {
+        DatabaseConcurrencyFilter filter = new DatabaseConcurrencyFilter(1, 10, new ObjectMapper());
+        filter.doFilter(request("/api/auth/login"), new MockHttpServletResponse(), (req, res) -> {
+            assertThat(filter.availablePermits()).isEqualTo(1);
+
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("/api/session"), new MockHttpServletResponse(), chain);
+            assertThat(chain.getRequest()).isNotNull();
+        });
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseConcurrencyFilter(0, 10, new ObjectMapper()));
+    }
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HibernateStatementMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HibernateStatementMetrics metrics = new HibernateStatementMetrics(meterRegistry);
+
+    @Test
+    void doFilter_recordsStatementsPreparedDuringTheRequest_byUriPattern() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session/42");
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/session/{id}");
+                metrics.inspect("select 1");
+                metrics.inspect("select 2");
+            }
+        });
+
+        metrics.doFilter(request, new MockHttpServletResponse(), chain);
+
+        DistributionSummary summary = meterRegistry.get("yoga.hibernate.statements")
+                .tag("uri", "/api/session/{id}").summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void inspect_outsideARequest_returnsTheSqlUnchanged_andCountsNothing() {
+        assertThat(metrics.inspect("select 1")).isEqualTo("select 1");
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.end();
+        }
+    }
+
+    @Test
+    void fingerprint_ignoresLiteralsWhitespaceAndInListLength() {
+        assertThat(RequestTiming.fingerprint("select *  from users\n where id = 42 and email = 'a''b@c.com'"))
+                .isEqualTo("select * from users where id = ? and email = ?");
+        assertThat(RequestTiming.fingerprint("select * from participate where session_id in (?, ?, ?)"))
+                .isEqualTo(RequestTiming.fingerprint("select * from participate where session_id IN (?)"))
+                .isEqualTo("select * from participate where session_id in (...)");
+    }
+
+    @Test
+    void sections_excludeTheSqlTimeSpentInside_andStatementsAreGroupedByFingerprint() throws Exception {
+        RequestTiming timing = RequestTiming.begin();
+        assertThat(RequestTiming.current()).isSameAs(timing);
+
+        long mark = timing.mark();
+        timing.statementStarted();
+        Thread.sleep(20);
+        timing.statementEnded("select * from users where id = 1");
+        timing.statementStarted();
+        timing.statementEnded("select * from users where id = 2");
+        timing.addAuth(mark);
+        timing.end();
+
+        assertThat(timing.dbStatements()).isEqualTo(2);
+        assertThat(timing.dbNanos()).isGreaterThanOrEqualTo(20_000_000L);
+        assertThat(timing.authNanos()).isLessThan(timing.dbNanos());
+        assertThat(timing.fingerprints()).singleElement().satisfies(fingerprint -> {
+            assertThat(fingerprint.sql()).isEqualTo("select * from users where id = ?");
+            assertThat(fingerprint.count()).isEqualTo(2);
+        });
+        assertThat(RequestTiming.current()).isNull();
+    }
+
+    @Test
+    void mapping_onlyTheOutermostConversionIsTimed() {
+        RequestTiming timing = RequestTiming.begin();
+
+        assertThat(timing.enterMapping()).isTrue();
+        assertThat(timing.enterMapping()).isFalse();
+        timing.exitMapping(0);
+        assertThat(timing.mappingNanos()).isZero();
+        timing.exitMapping(timing.mark());
+
+        assertThat(timing.mappingNanos()).isNotNegative();
+    }
+
+    @Test
+    void serverTiming_listsTheSectionsKnownBeforeTheBody_inMilliseconds() {
+        RequestTiming timing = RequestTiming.begin();
+        timing.statementStarted();
+        timing.statementEnded("select 1");
+        timing.end();
+
+        assertThat(timing.serverTiming())
+                .matches("auth;dur=\\d+\\.\\d{3}, db;dur=\\d+\\.\\d{3};desc=\"1 statements\", mapping;dur=\\d+\\.\\d{3}, "
+                        + "app;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}");
+    }
+
+    @Test
+    void statementsBeyondTheLimit_areCountedButNotKept() {
+        RequestTiming timing = RequestTiming.begin();
+        for (int i = 0; i < 250; i++) {
+            timing.statementStarted();
+            timing.statementEnded("select * from users where id = " + i);
+        }
+        timing.end();
+
+        assertThat(timing.dbStatements()).isEqualTo(250);
+        assertThat(timing.fingerprints()).singleElement()
+                .satisfies(fingerprint -> assertThat(fingerprint.count()).isEqualTo(200));
+    }
+}
@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowRequestLogTest {
+
+    private static SlowRequest request(String path) {
+        return new SlowRequest(Instant.EPOCH, "GET", path, null, 200, null, 1, 0, 0, 0, 0, 0, 1, List.of());
+    }
+
+    @Test
+    void recent_returnsNewestFirst_andKeepsOnlyTheLastEntries() {
+        SlowRequestLog log = new SlowRequestLog(3);
+        assertThat(log.recent()).isEmpty();
+
+        for (int i = 1; i <= 5; i++) {
+            log.add(request("/api/" + i));
+        }
+
+        assertThat(log.recent()).extracting(SlowRequest::path).containsExactly("/api/5", "/api/4", "/api/3");
+    }
+}
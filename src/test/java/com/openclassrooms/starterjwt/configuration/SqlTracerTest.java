@@ -0,0 +1,116 @@
+package com.openclassrooms.starterjwt.configuration;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SqlTracerTest {
+
+    private static final String SELECT = "select id from users where id = ?";
+    private static final String UPDATE = "update sessions set name = ? where id = ?";
+
+    private final List<SqlTracer.RequestTrace> reports = new ArrayList<>();
+
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        statement = mock(PreparedStatement.class);
+        resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getStatement()).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(statement.executeUpdate()).thenReturn(2);
+    }
+
+    private DataSource proxy(SqlTracer tracer) throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return ProxyDataSourceBuilder.create(dataSource)
+                .listener(tracer)
+                .methodListener(tracer)
+                .proxyResultSet()
+                .build();
+    }
+
+    private static void select(DataSource dataSource, long id) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rs.getLong(1);
+                }
+            }
+        }
+    }
+
+    @Test
+    void sampledRequest_recordsStatementBindsRowsAndDuration() throws Exception {
+        SqlTracer tracer = new SqlTracer(1.0, 10_000, 5, 100, reports::add);
+        DataSource dataSource = proxy(tracer);
+
+        SqlTracer.RequestTrace trace = tracer.begin();
+        select(dataSource, 1L);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(UPDATE)) {
+            ps.setString(1, "Yoga");
+            ps.setLong(2, 1L);
+            ps.executeUpdate();
+        }
+        tracer.end(trace);
+
+        assertThat(reports).containsExactly(trace);
+        assertThat(trace.count).isEqualTo(2);
+        assertThat(trace.statements).extracting(s -> s.sql).containsExactly(SELECT, UPDATE);
+        assertThat(trace.statements).extracting(s -> s.binds).containsExactly(1, 2);
+        assertThat(trace.statements).extracting(s -> s.rows).containsExactly(3L, 2L);
+        assertThat(trace.statements).allSatisfy(s -> assertThat(s.durationMs).isNotNegative());
+        assertThat(trace.repeated(5)).isEmpty();
+    }
+
+    @Test
+    void repeatedIdenticalStatements_areReportedAsNPlusOne_evenBeyondTheDetailCap() throws Exception {
+        SqlTracer tracer = new SqlTracer(1.0, 10_000, 5, 3, reports::add);
+        DataSource dataSource = proxy(tracer);
+
+        SqlTracer.RequestTrace trace = tracer.begin();
+        for (long id = 1; id <= 6; id++) {
+            when(resultSet.next()).thenReturn(true, false);
+            select(dataSource, id);
+        }
+        tracer.end(trace);
+
+        assertThat(trace.count).isEqualTo(6);
+        assertThat(trace.statements).hasSize(3);
+        assertThat(trace.repeated(5)).containsEntry(SELECT, 6);
+    }
+
+    @Test
+    void unsampledRequest_recordsNothing() throws Exception {
+        SqlTracer tracer = new SqlTracer(0.0, 10_000, 5, 100, reports::add);
+        DataSource dataSource = proxy(tracer);
+
+        SqlTracer.RequestTrace trace = tracer.begin();
+        select(dataSource, 1L);
+        tracer.end(trace);
+
+        assertThat(trace).isNull();
+        assertThat(reports).isEmpty();
+    }
+}
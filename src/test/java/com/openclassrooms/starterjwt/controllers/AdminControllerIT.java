@@ -0,0 +1,107 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.config.AbstractIntegrationTest;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// budget nul : toutes les requêtes sont conservées
+@SpringBootTest(properties = {"oc.app.requestTimingEnabled=true", "oc.app.requestBudgetMs=0"})
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class AdminControllerIT extends AbstractIntegrationTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired UserRepository userRepository;
+
+    String token;
+
+    @BeforeEach
+    void setup() throws Exception {
+        userRepository.deleteAll();
+
+        SignupRequest signup = new SignupRequest();
+        signup.setEmail("admin.it@test.com");
+        signup.setFirstName("User");
+        signup.setLastName("Test");
+        signup.setPassword("password");
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(signup)))
+                .andExpect(status().isOk());
+
+        token = login();
+    }
+
+    private String login() throws Exception {
+        LoginRequest login = new LoginRequest();
+        login.setEmail("admin.it@test.com");
+        login.setPassword("password");
+        String resp = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(resp).get("token").asText();
+    }
+
+    @Test
+    void anyRequest_shouldCarryServerTiming_withEverySection() throws Exception {
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", matchesPattern(
+                        "auth;dur=[0-9.]+, db;dur=[0-9.]+;desc=\"[1-9][0-9]* statements\", mapping;dur=[0-9.]+, "
+                                + "app;dur=[0-9.]+, total;dur=[0-9.]+")));
+    }
+
+    @Test
+    void slowRequests_shouldListRequestsOverBudget_withSqlFingerprints_whenAdmin() throws Exception {
+        userRepository.save(userRepository.findByEmail("admin.it@test.com").orElseThrow().setAdmin(true));
+        String adminToken = login();
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        String resp = mockMvc.perform(get("/api/admin/slow-requests").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode latest = objectMapper.readTree(resp).get(0);
+        assertThat(latest.get("method").asText()).isEqualTo("GET");
+        assertThat(latest.get("path").asText()).isEqualTo("/api/session");
+        assertThat(latest.get("pattern").asText()).isEqualTo("/api/session");
+        assertThat(latest.get("status").asInt()).isEqualTo(200);
+        assertThat(latest.get("requestId").asText()).isNotBlank();
+        assertThat(latest.get("dbStatements").asInt()).isPositive();
+        assertThat(latest.get("sql").get(0).get("fingerprint").asText()).startsWith("select");
+    }
+
+    @Test
+    void slowRequests_shouldReturn403_whenNotAdmin() throws Exception {
+        mockMvc.perform(get("/api/admin/slow-requests").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void slowRequests_shouldReturn401_whenNoToken() throws Exception {
+        mockMvc.perform(get("/api/admin/slow-requests"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -1,20 +1,39 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.config.AbstractIntegrationTest;
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.RefreshTokenRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.RefreshTokenService;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.Locator;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.security.Key;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -26,9 +45,12 @@ class AuthControllerIT extends AbstractIntegrationTest {
     @Autowired MockMvc mockMvc;
     @Autowired ObjectMapper objectMapper;
     @Autowired UserRepository userRepository;
+    @Autowired RefreshTokenRepository refreshTokenRepository;
+    @Autowired RefreshTokenService refreshTokenService;
 
     @BeforeEach
     void setup() {
+        refreshTokenRepository.deleteAll();
         userRepository.deleteAll();
     }
 
@@ -112,6 +134,123 @@ class AuthControllerIT extends AbstractIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void login_shouldRehashPassword_whenStoredAtLowerCost() throws Exception {
+        userRepository.save(new User("old@u.com", "Test", "User", new BCryptPasswordEncoder(4).encode("password"), false));
+
+        LoginRequest login = new LoginRequest();
+        login.setEmail("old@u.com");
+        login.setPassword("password");
+
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk());
+
+        String rehashed = userRepository.findByEmail("old@u.com").orElseThrow().getPassword();
+        assertThat(rehashed).startsWith("$2a$10$");
+        assertThat(new BCryptPasswordEncoder().matches("password", rehashed)).isTrue();
+
+        // le nouveau hash est toujours accepté
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void refresh_shouldRotateTokens_andRevokeAll_onReuse() throws Exception {
+        userRepository.save(new User("r@u.com", "Test", "User", new BCryptPasswordEncoder().encode("password"), false));
+        LoginRequest login = new LoginRequest();
+        login.setEmail("r@u.com");
+        login.setPassword("password");
+
+        JsonNode first = objectMapper.readTree(mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken", not(isEmptyOrNullString())))
+                .andReturn().getResponse().getContentAsString());
+        String refreshToken = first.get("refreshToken").asText();
+
+        // un refresh token n'authentifie pas un appel à l'API
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + refreshToken))
+                .andExpect(status().isUnauthorized());
+        // un token d'accès n'est pas accepté comme refresh token
+        mockMvc.perform(refresh(first.get("token").asText()))
+                .andExpect(status().isUnauthorized());
+
+        JsonNode second = objectMapper.readTree(mockMvc.perform(refresh(refreshToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("r@u.com"))
+                .andReturn().getResponse().getContentAsString());
+        String rotated = second.get("refreshToken").asText();
+        assertThat(rotated).isNotEqualTo(refreshToken);
+
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + second.get("token").asText()))
+                .andExpect(status().isOk());
+
+        // rejeu de l'ancien token : refusé, et le token issu de la rotation est révoqué avec lui
+        mockMvc.perform(refresh(refreshToken)).andExpect(status().isUnauthorized());
+        mockMvc.perform(refresh(rotated)).andExpect(status().isUnauthorized());
+        assertThat(refreshTokenRepository.count()).isZero();
+    }
+
+    @Test
+    void jwks_shouldPublishTheKeyThatVerifiesIssuedTokens() throws Exception {
+        userRepository.save(new User("k@u.com", "Test", "User", new BCryptPasswordEncoder().encode("password"), false));
+        LoginRequest login = new LoginRequest();
+        login.setEmail("k@u.com");
+        login.setPassword("password");
+        String token = objectMapper.readTree(mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("token").asText();
+
+        String jwks = mockMvc.perform(get("/api/auth/jwks"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("max-age=300")))
+                .andExpect(jsonPath("$.keys[0].kty").value("EC"))
+                .andExpect(jsonPath("$.keys[0].d").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+
+        // vérification hors application, avec les seules clés publiques du JWKS
+        JwkSet keys = Jwks.setParser().build().parse(jwks);
+        Locator<Key> byKid = new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                return keys.getKeys().stream()
+                        .filter(jwk -> jwk.getId().equals(header.getKeyId()))
+                        .findFirst().orElseThrow().toKey();
+            }
+        };
+        assertThat(Jwts.parser().keyLocator(byKid).build().parseSignedClaims(token).getPayload().getSubject())
+                .isEqualTo("k@u.com");
+    }
+
+    @Test
+    void deleteExpired_shouldPurgeOnlyExpiredTokens() {
+        User user = userRepository.save(new User("e@u.com", "Test", "User", "hash", false));
+        refreshTokenRepository.save(new RefreshToken().setUser(user).setTokenHash(new byte[32])
+                .setExpiresAt(LocalDateTime.now().minusMinutes(1)));
+        byte[] live = new byte[32];
+        live[0] = 1;
+        refreshTokenRepository.save(new RefreshToken().setUser(user).setTokenHash(live)
+                .setExpiresAt(LocalDateTime.now().plusDays(1)));
+
+        assertThat(refreshTokenService.deleteExpired()).isEqualTo(1);
+        assertThat(refreshTokenRepository.count()).isEqualTo(1);
+    }
+
+    private MockHttpServletRequestBuilder refresh(String refreshToken) throws Exception {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setRefreshToken(refreshToken);
+        return post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request));
+    }
+
     @Test
     void login_shouldReturn400_whenMissingRequiredField() throws Exception {
         // email manquant (NotBlank)
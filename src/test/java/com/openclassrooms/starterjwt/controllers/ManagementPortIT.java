@@ -0,0 +1,44 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.config.AbstractIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// actuator sur un port séparé, comme en production
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "management.server.port=0")
+@AutoConfigureObservability(tracing = false)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ManagementPortIT extends AbstractIntegrationTest {
+
+    @Autowired TestRestTemplate restTemplate;
+    @LocalManagementPort int managementPort;
+
+    private ResponseEntity<String> management(String path) {
+        return restTemplate.getForEntity("http://localhost:" + managementPort + path, String.class);
+    }
+
+    @Test
+    void prometheus_isScrapedWithoutToken_onlyOnTheManagementPort() {
+        ResponseEntity<String> scrape = management("/actuator/prometheus");
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody()).contains("jvm_memory_used_bytes");
+
+        assertThat(restTemplate.getForEntity("/actuator/prometheus", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void metrics_stillRequiresAuthentication_onTheManagementPort() {
+        assertThat(management("/actuator/health").getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(management("/actuator/metrics").getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+}
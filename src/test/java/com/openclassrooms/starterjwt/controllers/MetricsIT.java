@@ -0,0 +1,86 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.config.AbstractIntegrationTest;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class MetricsIT extends AbstractIntegrationTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired UserRepository userRepository;
+
+    private String login() throws Exception {
+        userRepository.deleteAll();
+        SignupRequest signup = new SignupRequest();
+        signup.setEmail("metrics.it@test.com");
+        signup.setFirstName("User");
+        signup.setLastName("Test");
+        signup.setPassword("password");
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(signup)))
+                .andExpect(status().isOk());
+
+        LoginRequest login = new LoginRequest();
+        login.setEmail("metrics.it@test.com");
+        login.setPassword("password");
+        String resp = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(resp).get("token").asText();
+    }
+
+    @Test
+    void prometheus_exposesHotPathHistograms() throws Exception {
+        String token = login();
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // actuator sur le port de l'application (profil de test) : le scrape exige un token
+        String scrape = mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("yoga_auth_login_seconds_bucket")
+                .contains("yoga_auth_user_load_seconds_count")
+                .contains("yoga_password_hash_seconds_bucket")
+                .contains("yoga_jwt_verification_seconds_bucket")
+                .contains("yoga_session_service_seconds_bucket")
+                .contains("method=\"findAll\"")
+                .contains("yoga_session_mapper_seconds_bucket")
+                .contains("yoga_hibernate_statements_bucket")
+                .contains("uri=\"/api/session\"")
+                .contains("hikaricp_connections_acquire_seconds_bucket")
+                .contains("http_server_requests_seconds_bucket");
+    }
+
+    @Test
+    void metricsAndPrometheus_requireAuthentication_onTheApplicationPort_unlikeHealth() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    }
+}
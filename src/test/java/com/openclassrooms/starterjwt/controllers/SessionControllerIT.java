@@ -3,7 +3,9 @@ package com.openclassrooms.starterjwt.controllers;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.config.AbstractIntegrationTest;
+import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
@@ -18,13 +20,16 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "oc.app.sessionListMaxSize=3")
 @AutoConfigureMockMvc
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
 class SessionControllerIT extends AbstractIntegrationTest {
@@ -63,6 +68,10 @@ class SessionControllerIT extends AbstractIntegrationTest {
                         .content(objectMapper.writeValueAsString(signup)))
                 .andExpect(status().isOk());
 
+        return login(email, password);
+    }
+
+    private String login(String email, String password) throws Exception {
         LoginRequest login = new LoginRequest();
         login.setEmail(email);
         login.setPassword(password);
@@ -174,6 +183,41 @@ class SessionControllerIT extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.description").value("Relax Updated"));
     }
 
+    @Test
+    void updateSession_shouldReplaceParticipants_andRejectMoreThanCapacity() throws Exception {
+        long id = createSession("Yoga", new Date().getTime());
+        Long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+        Long otherId = userRepository.save(new User("other@test.com", "Other", "User", "pwd", false)).getId();
+        mockMvc.perform(post("/api/session/" + id + "/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        String body = """
+        {
+          "name": "Yoga",
+          "date": %d,
+          "teacher_id": %d,
+          "description": "Relax",
+          "capacity": 1,
+          "users": [%s]
+        }
+        """;
+        mockMvc.perform(put("/api/session/" + id)
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(new Date().getTime(), teacherId, otherId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", contains(otherId.intValue())));
+
+        mockMvc.perform(put("/api/session/" + id)
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.formatted(new Date().getTime(), teacherId, otherId + ", " + userId)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(sessionRepository.findParticipantIdArrays(List.of(id)).get(id)).containsExactly(otherId);
+    }
+
     @Test
     void updateSession_shouldReturn400_whenMissingRequiredField() throws Exception {
         // id ok mais manque date/teacher/description
@@ -230,4 +274,406 @@ class SessionControllerIT extends AbstractIntegrationTest {
                         .header("Authorization", "Bearer " + token))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    private long createSession(String name, long date) throws Exception {
+        String body = """
+        {
+          "name": "%s",
+          "date": %d,
+          "teacher_id": %d,
+          "description": "Relax"
+        }
+        """.formatted(name, date, teacherId);
+
+        String created = mockMvc.perform(post("/api/session")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        return objectMapper.readTree(created).get("id").asLong();
+    }
+
+    @Test
+    void listSessions_shouldPaginateByCursor_inDateOrder() throws Exception {
+        long now = new Date().getTime();
+        createSession("Third", now + 3000);
+        createSession("First", now + 1000);
+        createSession("Second", now + 2000);
+
+        String firstPage = mockMvc.perform(get("/api/session")
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].name").value("First"))
+                .andExpect(jsonPath("$.items[1].name").value("Second"))
+                .andExpect(jsonPath("$.nextCursor").isString())
+                .andReturn().getResponse().getContentAsString();
+
+        String cursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/session")
+                        .param("limit", "2")
+                        .param("cursor", cursor)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name").value("Third"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void listSessions_withoutParameters_shouldBeCapped_andLinkToTheRest() throws Exception {
+        long now = new Date().getTime();
+        for (int i = 1; i <= 4; i++) {
+            createSession("Yoga " + i, now + i * 1000L);
+        }
+
+        String link = mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[2].name").value("Yoga 3"))
+                .andExpect(header().stringValues("Link", hasItem(containsString("</api/session/export>; rel=\"alternate\""))))
+                .andReturn().getResponse().getHeaders("Link").get(0);
+
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        assertThat(link).endsWith("rel=\"next\"");
+        mockMvc.perform(get(next)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name").value("Yoga 4"));
+    }
+
+    @Test
+    void listSessions_withoutParameters_shouldHaveNoLink_whenComplete() throws Exception {
+        createSession("Yoga", new Date().getTime());
+
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void listSessions_shouldFilterByTeacher() throws Exception {
+        createSession("Yoga", new Date().getTime());
+
+        mockMvc.perform(get("/api/session")
+                        .param("teacherId", String.valueOf(teacherId))
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)));
+
+        mockMvc.perform(get("/api/session")
+                        .param("teacherId", String.valueOf(teacherId + 1000))
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)));
+    }
+
+    @Test
+    void listSessions_shouldReturn400_whenCursorInvalid() throws Exception {
+        mockMvc.perform(get("/api/session")
+                        .param("cursor", "not-a-cursor")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createSession_shouldReturn400_listingAllUnknownIds() throws Exception {
+        String body = """
+        {
+          "name": "Yoga",
+          "date": %d,
+          "teacher_id": %d,
+          "description": "Relax",
+          "users": [999998, 999999]
+        }
+        """.formatted(new Date().getTime(), teacherId + 1000);
+
+        mockMvc.perform(post("/api/session")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(
+                        "Error: Unknown teacher %d, users [999998, 999999]!".formatted(teacherId + 1000)));
+    }
+
+    @Test
+    void participate_thenNoLongerParticipate_shouldWriteSingleJoinRow() throws Exception {
+        long sessionId = createSession("Yoga", new Date().getTime());
+        long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+
+        mockMvc.perform(post("/api/session/" + sessionId + "/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // déjà inscrit
+        mockMvc.perform(post("/api/session/" + sessionId + "/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(jsonPath("$.users", contains((int) userId)));
+
+        mockMvc.perform(delete("/api/session/" + sessionId + "/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // plus inscrit
+        mockMvc.perform(delete("/api/session/" + sessionId + "/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(jsonPath("$.users", hasSize(0)));
+    }
+
+    @Test
+    void getSession_shouldReturn304_untilAParticipationChanges() throws Exception {
+        long sessionId = createSession("Yoga", new Date().getTime());
+        long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+
+        String etag = mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("no-cache")))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(post("/api/session/" + sessionId + "/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.users", contains((int) userId)));
+    }
+
+    @Test
+    void listSessions_shouldReturn304_untilTheTableChanges() throws Exception {
+        createSession("Yoga", new Date().getTime());
+
+        String etag = mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        createSession("Pilates", new Date().getTime());
+
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void participate_shouldReturn404_whenSessionOrUserMissing() throws Exception {
+        long sessionId = createSession("Yoga", new Date().getTime());
+        long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+
+        mockMvc.perform(post("/api/session/999999/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/api/session/" + sessionId + "/participate/999999")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/api/session/999999/participate/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void participateAll_shouldReturn403_whenNotAdmin() throws Exception {
+        mockMvc.perform(post("/api/session/participate")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"participations": [{"sessionId": 1, "userId": 1}]}
+                                """))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void participateAll_shouldEnrollAndReportEachItem_whenAdmin() throws Exception {
+        userRepository.save(userRepository.findByEmail("user@test.com").orElseThrow().setAdmin(true));
+        String adminToken = login("user@test.com", "password");
+        long sessionId = createSession("Yoga", new Date().getTime());
+        long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+
+        String body = """
+        {"participations": [
+          {"sessionId": %d, "userId": %d},
+          {"sessionId": %d, "userId": %d},
+          {"sessionId": 999999, "userId": %d}
+        ]}
+        """.formatted(sessionId, userId, sessionId, userId, userId);
+
+        mockMvc.perform(post("/api/session/participate")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[*].status",
+                        contains("ENROLLED", "ALREADY_PARTICIPATING", "SESSION_NOT_FOUND")));
+
+        mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(jsonPath("$.users", contains((int) userId)));
+    }
+
+    @Test
+    void participateAll_shouldReturn400_whenEmpty() throws Exception {
+        mockMvc.perform(post("/api/session/participate")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"participations": []}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createAll_shouldCreateSessionsWithParticipants_whenAdmin() throws Exception {
+        userRepository.save(userRepository.findByEmail("user@test.com").orElseThrow().setAdmin(true));
+        String adminToken = login("user@test.com", "password");
+        long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+        long date = new Date().getTime();
+
+        String body = """
+        {"sessions": [
+          {"name": "Monday", "date": %d, "teacher_id": %d, "description": "Relax", "users": [%d]},
+          {"name": "Tuesday", "date": %d, "teacher_id": %d, "description": "Relax", "capacity": 10}
+        ]}
+        """.formatted(date, teacherId, userId, date, teacherId);
+
+        String created = mockMvc.perform(post("/api/session/batch")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").isNumber())
+                .andReturn().getResponse().getContentAsString();
+
+        long mondayId = objectMapper.readTree(created).get(0).get("id").asLong();
+        long tuesdayId = objectMapper.readTree(created).get(1).get("id").asLong();
+
+        mockMvc.perform(get("/api/session/" + mondayId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(jsonPath("$.name").value("Monday"))
+                .andExpect(jsonPath("$.teacher_id").value(teacherId))
+                .andExpect(jsonPath("$.users", contains((int) userId)));
+
+        mockMvc.perform(get("/api/session/" + tuesdayId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(jsonPath("$.capacity").value(10))
+                .andExpect(jsonPath("$.createdAt").isNotEmpty());
+    }
+
+    @Test
+    void createAll_shouldReturn400_listingSessionsOverCapacity() throws Exception {
+        userRepository.save(userRepository.findByEmail("user@test.com").orElseThrow().setAdmin(true));
+        String adminToken = login("user@test.com", "password");
+        long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+        long otherId = userRepository.save(new User("other@test.com", "Other", "User", "pwd", false)).getId();
+        long date = new Date().getTime();
+
+        String body = """
+        {"sessions": [
+          {"name": "Monday", "date": %d, "teacher_id": %d, "description": "Relax", "capacity": 2, "users": [%d, %d]},
+          {"name": "Tuesday", "date": %d, "teacher_id": %d, "description": "Relax", "capacity": 1, "users": [%d, %d]}
+        ]}
+        """.formatted(date, teacherId, userId, otherId, date, teacherId, userId, otherId);
+
+        mockMvc.perform(post("/api/session/batch")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: Participants exceed capacity for sessions [1]!"));
+
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    @Test
+    void createAll_shouldReturn403_whenNotAdmin() throws Exception {
+        String body = """
+        {"sessions": [{"name": "Monday", "date": %d, "teacher_id": %d, "description": "Relax"}]}
+        """.formatted(new Date().getTime(), teacherId);
+
+        mockMvc.perform(post("/api/session/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void export_shouldStreamOneSessionPerLine_likeTheList() throws Exception {
+        Teacher teacher = teacherRepository.getReferenceById(teacherId);
+        List<User> users = userRepository.findAll();
+        users.add(userRepository.save(new User("other@test.com", "Other", "User", "pwd", false)));
+        for (int i = 0; i < 3; i++) {
+            sessionRepository.save(new Session().setName("Yoga " + i).setDate(new Date()).setDescription("Relax")
+                    .setTeacher(teacher).setUsers(i == 1 ? new ArrayList<>(users) : new ArrayList<>()));
+        }
+
+        String ndjson = mockMvc.perform(get("/api/session/export")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode list = objectMapper.readTree(mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + token))
+                .andReturn().getResponse().getContentAsString());
+
+        assertThat(ndjson).endsWith("\n");
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1).get("users")).hasSize(2);
+        for (JsonNode line : lines) {
+            JsonNode same = null;
+            for (JsonNode item : list) {
+                if (item.get("id").equals(line.get("id"))) {
+                    same = item;
+                }
+            }
+            assertThat(line).isEqualTo(same);
+        }
+    }
+
+    @Test
+    void export_shouldReturn401_whenNoToken() throws Exception {
+        mockMvc.perform(get("/api/session/export"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,149 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.config.AbstractIntegrationTest;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Inscriptions simultanées à une même session : aucune ne doit être perdue, et la capacité ne doit pas être dépassée.
+ * THREADS dépasse la limite de concurrence (taille du pool) : les requêtes en trop attendent au lieu de recevoir 503.
+ */
+@SpringBootTest(properties = "oc.app.dbConcurrencyWaitMs=30000")
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class SessionParticipationConcurrencyIT extends AbstractIntegrationTest {
+
+    private static final int USERS = 40;
+    private static final int THREADS = 16;
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @Autowired UserRepository userRepository;
+    @Autowired TeacherRepository teacherRepository;
+    @Autowired SessionRepository sessionRepository;
+
+    Teacher teacher;
+    List<Long> userIds;
+    String token;
+
+    @BeforeEach
+    void setup() throws Exception {
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        teacher = teacherRepository.save(new Teacher().setFirstName("T").setLastName("L"));
+
+        userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(userRepository.save(new User("u" + i + "@test.com", "Last", "First", "pwd", false)).getId());
+        }
+
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"email": "me@test.com", "firstName": "Meee", "lastName": "User", "password": "password"}
+                                """))
+                .andExpect(status().isOk());
+
+        String resp = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"email": "me@test.com", "password": "password"}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        token = objectMapper.readTree(resp).get("token").asText();
+    }
+
+    private Long createSession(Integer capacity) {
+        return sessionRepository.save(new Session()
+                .setName("Yoga")
+                .setDate(new Date())
+                .setDescription("Relax")
+                .setCapacity(capacity)
+                .setTeacher(teacher)
+                .setUsers(new ArrayList<>())).getId();
+    }
+
+    /**
+     * Lance toutes les inscriptions en même temps et retourne le nombre de réponses par statut HTTP.
+     */
+    private Map<Integer, AtomicInteger> participateConcurrently(Long sessionId) throws Exception {
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long userId : userIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int status = mockMvc.perform(post("/api/session/" + sessionId + "/participate/" + userId)
+                                    .header("Authorization", "Bearer " + token))
+                            .andReturn().getResponse().getStatus();
+                    statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return statuses;
+    }
+
+    @Test
+    void concurrentSignUps_shouldAllBeRecorded_whenNoCapacity() throws Exception {
+        Long sessionId = createSession(null);
+
+        Map<Integer, AtomicInteger> statuses = participateConcurrently(sessionId);
+
+        assertThat(statuses.keySet()).containsOnly(200);
+        assertThat(sessionRepository.findParticipantIdArrays(List.of(sessionId)).get(sessionId)).hasSize(USERS);
+    }
+
+    @Test
+    void concurrentSignUps_shouldNeverExceedCapacity() throws Exception {
+        Long sessionId = createSession(15);
+
+        Map<Integer, AtomicInteger> statuses = participateConcurrently(sessionId);
+
+        assertThat(statuses.keySet()).containsOnly(200, 409);
+        assertThat(statuses.get(200).get()).isEqualTo(15);
+        assertThat(statuses.get(409).get()).isEqualTo(USERS - 15);
+        assertThat(sessionRepository.findParticipantIdArrays(List.of(sessionId)).get(sessionId)).hasSize(15);
+    }
+}
@@ -0,0 +1,284 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.config.AbstractIntegrationTest;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Nombre de requêtes SQL par endpoint de session : il ne doit pas dépendre du nombre de participants.
+ * <p>
+ * Les requêtes sont comptées sur la DataSource (datasource-proxy) : celles de Hibernate comme celles de
+ * JdbcTemplate. Un lot JDBC compte pour une requête.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class SessionQueryCountIT extends AbstractIntegrationTest {
+
+    /**
+     * Requêtes exécutées par le thread du test (celui de MockMvc), hors tâches planifiées.
+     */
+    static class StatementCounter implements QueryExecutionListener {
+
+        private final AtomicLong statements = new AtomicLong();
+        private volatile Thread owner;
+
+        void reset() {
+            owner = Thread.currentThread();
+            statements.set(0);
+        }
+
+        long statements() {
+            return statements.get();
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (Thread.currentThread() == owner) {
+                statements.incrementAndGet();
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class StatementCounterConfig {
+        @Bean
+        StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired StatementCounter statementCounter;
+
+    @Autowired UserRepository userRepository;
+    @Autowired TeacherRepository teacherRepository;
+    @Autowired SessionRepository sessionRepository;
+
+    Statistics statistics;
+    List<Long> participantIds;
+    Long teacherId;
+    Long sessionId;
+    String token;
+
+    @BeforeEach
+    void setup() throws Exception {
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Teacher teacher = teacherRepository.save(new Teacher().setFirstName("T").setLastName("L"));
+        teacherId = teacher.getId();
+
+        List<User> participants = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            participants.add(userRepository.save(new User("p" + i + "@test.com", "Last", "First", "pwd", false)));
+        }
+        for (int i = 0; i < 3; i++) {
+            Session session = sessionRepository.save(new Session()
+                    .setName("Yoga " + i)
+                    .setDate(new Date())
+                    .setDescription("Relax")
+                    .setTeacher(teacher)
+                    .setUsers(new ArrayList<>(participants)));
+            sessionId = session.getId();
+        }
+        participantIds = participants.stream().map(User::getId).toList();
+
+        token = registerAndLogin();
+    }
+
+    private String registerAndLogin() throws Exception {
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"email": "me@test.com", "firstName": "Meee", "lastName": "User", "password": "password"}
+                                """))
+                .andExpect(status().isOk());
+        userRepository.save(userRepository.findByEmail("me@test.com").orElseThrow().setAdmin(true));
+
+        String resp = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"email": "me@test.com", "password": "password"}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        return objectMapper.readTree(resp).get("token").asText();
+    }
+
+    private long countStatements(RequestBuilder request) throws Exception {
+        statistics.clear();
+        statementCounter.reset();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statementCounter.statements();
+    }
+
+    @Test
+    void findById_shouldUseTwoStatements() throws Exception {
+        // session + ids des participants, lus dans PARTICIPATE
+        assertThat(countStatements(get("/api/session/" + sessionId)
+                .header("Authorization", "Bearer " + token))).isEqualTo(2);
+
+        mockMvc.perform(get("/api/session/" + sessionId).header("Authorization", "Bearer " + token))
+                .andExpect(jsonPath("$.users", hasSize(20)))
+                .andExpect(jsonPath("$.users[0]").value(participantIds.get(0)))
+                .andExpect(jsonPath("$.teacher_id").value(teacherId));
+    }
+
+    @Test
+    void findAll_shouldUseThreeStatements_whateverTheNumberOfSessions() throws Exception {
+        // version de la table + sessions + ids des participants de toutes les sessions
+        assertThat(countStatements(get("/api/session")
+                .header("Authorization", "Bearer " + token))).isEqualTo(3);
+    }
+
+    @Test
+    void findPage_shouldUseThreeStatements() throws Exception {
+        assertThat(countStatements(get("/api/session")
+                .param("limit", "2")
+                .header("Authorization", "Bearer " + token))).isEqualTo(3);
+    }
+
+    @Test
+    void readEndpoints_shouldNotLoadEntities() throws Exception {
+        for (RequestBuilder request : List.of(
+                get("/api/session").header("Authorization", "Bearer " + token),
+                get("/api/session").param("limit", "2").header("Authorization", "Bearer " + token),
+                get("/api/session/" + sessionId).header("Authorization", "Bearer " + token),
+                get("/api/user/" + participantIds.get(0)).header("Authorization", "Bearer " + token))) {
+            countStatements(request);
+            // projections : aucune entité hydratée ni gérée par le contexte de persistance
+            assertThat(statistics.getEntityLoadCount()).isZero();
+            assertThat(statistics.getCollectionLoadCount()).isZero();
+        }
+    }
+
+    @Test
+    void create_shouldUseTwoStatements() throws Exception {
+        String body = """
+        {
+          "name": "Yoga",
+          "date": %d,
+          "teacher_id": %d,
+          "description": "Relax"
+        }
+        """.formatted(new Date().getTime(), teacherId);
+
+        // professeur + insertion de la session
+        assertThat(countStatements(post("/api/session")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))).isEqualTo(2);
+    }
+
+    @Test
+    void update_shouldUseEightStatements_withoutLoadingParticipants() throws Exception {
+        Session empty = sessionRepository.save(new Session()
+                .setName("Empty")
+                .setDate(new Date())
+                .setDescription("Relax")
+                .setTeacher(teacherRepository.getReferenceById(teacherId))
+                .setUsers(new ArrayList<>()));
+
+        String body = """
+        {
+          "name": "Yoga Updated",
+          "date": %d,
+          "teacher_id": %d,
+          "description": "Relax",
+          "users": %s
+        }
+        """.formatted(new Date().getTime(), teacherId, participantIds);
+
+        statistics.clear();
+        statementCounter.reset();
+        mockMvc.perform(put("/api/session/" + empty.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(20)));
+
+        // professeur + ids des 20 utilisateurs, rattachés sans être chargés + verrou + participants actuels
+        // + lot d'insertions + session + date de modification + participants relus pour la réponse
+        assertThat(statistics.getEntityStatistics(User.class.getName()).getLoadCount()).isZero();
+        assertThat(statementCounter.statements()).isEqualTo(8);
+    }
+
+    @Test
+    void participation_shouldUseConstantStatements_whateverTheNumberOfParticipants() throws Exception {
+        Long userId = userRepository.findByEmail("me@test.com").orElseThrow().getId();
+
+        // verrou sur la session + insertion + date de modification
+        assertThat(countStatements(post("/api/session/" + sessionId + "/participate/" + userId)
+                .header("Authorization", "Bearer " + token))).isEqualTo(3);
+
+        assertThat(countStatements(delete("/api/session/" + sessionId + "/participate/" + userId)
+                .header("Authorization", "Bearer " + token))).isEqualTo(2);
+    }
+
+    @Test
+    void participateAll_shouldUseSixStatements_whateverTheNumberOfItems() throws Exception {
+        Session target = sessionRepository.save(new Session()
+                .setName("Group")
+                .setDate(new Date())
+                .setDescription("Relax")
+                .setTeacher(teacherRepository.getReferenceById(teacherId))
+                .setUsers(new ArrayList<>()));
+
+        String items = participantIds.stream()
+                .map(userId -> "{\"sessionId\": %d, \"userId\": %d}".formatted(target.getId(), userId))
+                .collect(Collectors.joining(",", "[", "]"));
+
+        // verrou + utilisateurs + participations existantes + effectifs + lot d'insertions + date de modification
+        assertThat(countStatements(post("/api/session/participate")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"participations\": " + items + "}"))).isEqualTo(6);
+
+        assertThat(sessionRepository.findParticipantIdArrays(List.of(target.getId())).get(target.getId())).hasSize(20);
+    }
+}
@@ -8,6 +8,9 @@ import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +20,8 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -32,6 +37,7 @@ class TeacherControllerIT extends AbstractIntegrationTest {
 
     @Autowired UserRepository userRepository;
     @Autowired TeacherRepository teacherRepository;
+    @Autowired EntityManagerFactory entityManagerFactory;
 
     String token;
 
@@ -113,4 +119,67 @@ class TeacherControllerIT extends AbstractIntegrationTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(1)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAll_shouldBeServedFromCache_untilATeacherChanges() throws Exception {
+        teacherRepository.save(new Teacher().setFirstName("A").setLastName("B"));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        mockMvc.perform(get("/api/teacher").header("Authorization", "Bearer " + token))
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        statistics.clear();
+        mockMvc.perform(get("/api/teacher").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(1)));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        // une écriture vide le cache
+        teacherRepository.save(new Teacher().setFirstName("C").setLastName("D"));
+
+        mockMvc.perform(get("/api/teacher").header("Authorization", "Bearer " + token))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void findAll_shouldReturn304_whenListUnchanged() throws Exception {
+        Teacher teacher = teacherRepository.save(new Teacher().setFirstName("A").setLastName("B"));
+
+        String etag = mockMvc.perform(get("/api/teacher").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/teacher")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/api/teacher/" + teacher.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", "W/\"" + teacher.getId() + "-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"));
+
+        teacherRepository.save(new Teacher().setFirstName("C").setLastName("D"));
+
+        mockMvc.perform(get("/api/teacher")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void cacheMetrics_shouldBeExposed() throws Exception {
+        mockMvc.perform(get("/api/teacher").header("Authorization", "Bearer " + token));
+        mockMvc.perform(get("/api/teacher").header("Authorization", "Bearer " + token));
+
+        mockMvc.perform(get("/actuator/metrics/cache.gets")
+                        .param("tag", "cache:teachersJson")
+                        .param("tag", "result:hit")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value", greaterThanOrEqualTo(1.0)));
+    }
+}
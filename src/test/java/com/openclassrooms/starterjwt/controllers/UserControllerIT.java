@@ -100,6 +100,19 @@ class UserControllerIT extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.email").value(email));
     }
 
+    @Test
+    void account_shouldReturn304_whenUserUnchanged() throws Exception {
+        String etag = mockMvc.perform(get("/api/user/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/user/" + userId)
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     void account_shouldReturn401_whenNoToken() throws Exception {
         mockMvc.perform(get("/api/user/" + userId))
@@ -125,6 +138,19 @@ class UserControllerIT extends AbstractIntegrationTest {
         assertTrue(userRepository.findById(userId).isEmpty());
     }
 
+    @Test
+    void delete_shouldRevokeTokens_evenWhenClaimsAreTrusted() throws Exception {
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/user/" + userId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void delete_shouldReturn404_whenUserNotFound() throws Exception {
         // Token valide, mais user inexistant => couvre la branche "not found" du delete
@@ -4,14 +4,21 @@ import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.collection.spi.PersistentBag;
 import org.junit.jupiter.api.Test;
 import org.mapstruct.factory.Mappers;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class SessionMapperTest {
@@ -19,7 +26,7 @@ class SessionMapperTest {
     private final SessionMapper mapper = Mappers.getMapper(SessionMapper.class);
 
     @Test
-    void toEntity_coversTeacherNullAndNotNull_usersNullEmpty_andUserNullBranch() {
+    void toEntity_coversTeacherNullAndNotNull_andUsersNullEmptyOrReferenced() {
         TeacherService teacherService = mock(TeacherService.class);
         UserService userService = mock(UserService.class);
 
@@ -38,35 +45,26 @@ class SessionMapperTest {
         assertThat(e1.getTeacher()).isNull();
         assertThat(e1.getUsers()).isEmpty();
 
-        // --- Cas 2 : teacher_id non-null + users avec un id -> User + un id -> null
-        Teacher t = Teacher.builder().id(10L).firstName("T").lastName("E").build();
-        when(teacherService.findById(10L)).thenReturn(t);
-
-        User u1 = User.builder()
-                .id(1L).email("u1@x.com").firstName("U1").lastName("X")
-                .password("p").admin(false)
-                .build();
-        when(userService.findById(1L)).thenReturn(u1);
-        when(userService.findById(2L)).thenReturn(null);
+        // --- Cas 2 : teacher_id non-null + users résolus en une requête, doublons ignorés
+        when(teacherService.findExistingIds(Set.of(10L))).thenReturn(Set.of(10L));
+        when(teacherService.getReference(anyLong())).thenAnswer(inv -> new Teacher().setId(inv.getArgument(0)));
+        when(userService.findExistingIds(Set.of(1L, 2L))).thenReturn(Set.of(1L, 2L));
+        when(userService.getReference(anyLong())).thenAnswer(inv -> new User().setId(inv.getArgument(0)));
 
         SessionDto dto2 = new SessionDto();
         dto2.setDescription("d2");
         dto2.setTeacher_id(10L);
-        dto2.setUsers(List.of(1L, 2L));
+        dto2.setUsers(List.of(1L, 2L, 1L));
 
         Session e2 = mapper.toEntity(dto2);
 
         assertThat(e2.getTeacher()).isNotNull();
         assertThat(e2.getTeacher().getId()).isEqualTo(10L);
+        assertThat(e2.getUsers()).extracting(User::getId).containsExactly(1L, 2L);
 
-        assertThat(e2.getUsers()).hasSize(2);
-        assertThat(e2.getUsers().get(0)).isNotNull();
-        assertThat(e2.getUsers().get(0).getId()).isEqualTo(1L);
-        assertThat(e2.getUsers().get(1)).isNull();
-
-        verify(teacherService).findById(10L);
-        verify(userService).findById(1L);
-        verify(userService).findById(2L);
+        verify(teacherService).findExistingIds(Set.of(10L));
+        verify(userService, times(1)).findExistingIds(Set.of(1L, 2L));
+        verify(userService, never()).findById(anyLong());
 
         // --- Cas 3 : users vide
         SessionDto dto3 = new SessionDto();
@@ -78,6 +76,57 @@ class SessionMapperTest {
         assertThat(e3.getUsers()).isEmpty();
     }
 
+    @Test
+    void toEntity_reportsAllUnknownIdsTogether() {
+        TeacherService teacherService = mock(TeacherService.class);
+        UserService userService = mock(UserService.class);
+
+        SessionMapperImpl impl = (SessionMapperImpl) mapper;
+        impl.teacherService = teacherService;
+        impl.userService = userService;
+
+        when(teacherService.findExistingIds(Set.of(10L))).thenReturn(Set.of());
+        when(userService.findExistingIds(Set.of(1L, 2L, 3L))).thenReturn(Set.of(1L));
+
+        SessionDto dto = new SessionDto();
+        dto.setTeacher_id(10L);
+        dto.setUsers(List.of(1L, 2L, 3L));
+
+        assertThatThrownBy(() -> mapper.toEntity(dto))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error: Unknown teacher 10, users [2, 3]!");
+        verify(userService, never()).getReference(anyLong());
+    }
+
+    @Test
+    void toEntity_resolvesWholeListWithOneQueryPerType() {
+        TeacherService teacherService = mock(TeacherService.class);
+        UserService userService = mock(UserService.class);
+
+        SessionMapperImpl impl = (SessionMapperImpl) mapper;
+        impl.teacherService = teacherService;
+        impl.userService = userService;
+
+        when(teacherService.findExistingIds(Set.of(10L, 11L))).thenReturn(Set.of(10L, 11L));
+        when(teacherService.getReference(anyLong())).thenAnswer(inv -> new Teacher().setId(inv.getArgument(0)));
+        when(userService.findExistingIds(Set.of(1L, 2L))).thenReturn(Set.of(1L, 2L));
+        when(userService.getReference(anyLong())).thenAnswer(inv -> new User().setId(inv.getArgument(0)));
+
+        SessionDto dto1 = new SessionDto();
+        dto1.setTeacher_id(10L);
+        dto1.setUsers(List.of(1L));
+        SessionDto dto2 = new SessionDto();
+        dto2.setTeacher_id(11L);
+        dto2.setUsers(List.of(1L, 2L));
+
+        List<Session> sessions = mapper.toEntity(List.of(dto1, dto2));
+
+        assertThat(sessions).extracting(session -> session.getTeacher().getId()).containsExactly(10L, 11L);
+        assertThat(sessions.get(1).getUsers()).extracting(User::getId).containsExactly(1L, 2L);
+        verify(teacherService, times(1)).findExistingIds(anyCollection());
+        verify(userService, times(1)).findExistingIds(anyCollection());
+    }
+
     @Test
     void toDto_coversUsersNullAndNotNull_andTeacherPresent() {
         Teacher t = Teacher.builder().id(99L).firstName("T").lastName("E").build();
@@ -112,6 +161,47 @@ class SessionMapperTest {
         assertThat(d2.getUsers()).containsExactly(5L);
     }
 
+    @Test
+    void toDto_readsParticipantIdsInOneQuery_whenUsersNotLoaded() {
+        SessionService sessionService = mock(SessionService.class);
+        ((SessionMapperImpl) mapper).sessionService = sessionService;
+
+        Session s1 = Session.builder().id(1L).users(new PersistentBag<>()).build();
+        Session s2 = Session.builder().id(2L).users(new PersistentBag<>()).build();
+        when(sessionService.findParticipantIds(List.of(1L, 2L))).thenReturn(Map.of(1L, List.of(5L, 6L)));
+
+        List<SessionDto> dtos = mapper.toDto(List.of(s1, s2));
+
+        assertThat(dtos.get(0).getUsers()).containsExactly(5L, 6L);
+        assertThat(dtos.get(1).getUsers()).isEmpty();
+        verify(sessionService, times(1)).findParticipantIds(anyCollection());
+    }
+
+    @Test
+    void fromViews_mapsColumns_andReadsParticipantIdsInOneQuery() {
+        SessionService sessionService = mock(SessionService.class);
+        ((SessionMapperImpl) mapper).sessionService = sessionService;
+
+        Date date = new Date();
+        SessionView v1 = new SessionView(1L, "Yoga", date, "Relax", 10, 3L, null, null);
+        SessionView v2 = new SessionView(2L, "Pilates", date, "Core", null, 4L, null, null);
+        when(sessionService.findParticipantIds(List.of(1L, 2L))).thenReturn(Map.of(1L, List.of(5L, 6L)));
+
+        List<SessionDto> dtos = mapper.fromViews(List.of(v1, v2));
+
+        assertThat(dtos.get(0).getName()).isEqualTo("Yoga");
+        assertThat(dtos.get(0).getCapacity()).isEqualTo(10);
+        assertThat(dtos.get(0).getTeacher_id()).isEqualTo(3L);
+        assertThat(dtos.get(0).getUsers()).containsExactly(5L, 6L);
+        assertThat(dtos.get(1).getUsers()).isEmpty();
+        verify(sessionService, times(1)).findParticipantIds(anyCollection());
+
+        assertThat(mapper.fromViews(List.of())).isEmpty();
+        assertThat(mapper.fromViews(null)).isNull();
+        assertThat(mapper.fromView(null)).isNull();
+        verifyNoMoreInteractions(sessionService);
+    }
+
     @Test
     void toEntity_returnsNull_whenInputIsNull() {
         assertThat(mapper.toEntity((SessionDto) null)).isNull();
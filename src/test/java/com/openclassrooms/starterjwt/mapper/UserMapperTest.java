@@ -2,6 +2,7 @@ package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.UserDto;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserView;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -33,6 +34,12 @@ class UserMapperTest {
         assertThat(mapper.toDto(List.of(user))).hasSize(1);
         assertThat(mapper.toEntity(List.of(dto))).hasSize(1);
 
+        UserDto fromView = mapper.fromView(new UserView(1L, "a@b.com", "B", "A", true, null, null));
+        assertThat(fromView.getEmail()).isEqualTo("a@b.com");
+        assertThat(fromView.isAdmin()).isTrue();
+        assertThat(fromView.getPassword()).isNull();
+        assertThat(mapper.fromView(null)).isNull();
+
         // branches MapStruct (null guards) — important
         assertThat(mapper.toDto((User) null)).isNull();
         assertThat(mapper.toEntity((UserDto) null)).isNull();
@@ -0,0 +1,122 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class OffloadingPasswordEncoderTest {
+
+    private OffloadingPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.close();
+    }
+
+    @Test
+    void encodeAndMatches_runOnDedicatedPool() {
+        PasswordEncoder delegate = spy(new BCryptPasswordEncoder(4));
+        encoder = new OffloadingPasswordEncoder(delegate, 1, 1);
+        String[] thread = new String[1];
+        doAnswer(invocation -> {
+            thread[0] = Thread.currentThread().getName();
+            return invocation.callRealMethod();
+        }).when(delegate).matches(any(), any());
+
+        String hash = encoder.encode("password");
+
+        assertThat(encoder.matches("password", hash)).isTrue();
+        assertThat(encoder.matches("wrong", hash)).isFalse();
+        assertThat(thread[0]).startsWith("password-hash-");
+    }
+
+    @Test
+    void upgradeEncoding_isTrue_forLowerCost() {
+        encoder = new OffloadingPasswordEncoder(new BCryptPasswordEncoder(6), 1, 1);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password"))).isFalse();
+    }
+
+    @Test
+    void matches_throwsServiceOverloaded_whenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.matches(any(), any())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return true;
+        });
+        encoder = new OffloadingPasswordEncoder(delegate, 1, 1);
+
+        // un appel en cours sur l'unique thread, un autre dans la file : la file est pleine
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> encoder.matches("a", "a"));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "b"));
+        while (encoder.queuedTasks() == 0) {
+            Thread.onSpinWait();
+        }
+
+        ServiceOverloadedException ex = assertThrows(ServiceOverloadedException.class, () -> encoder.matches("c", "c"));
+        assertThat(ex.getRetryAfterSeconds()).isEqualTo(OffloadingPasswordEncoder.RETRY_AFTER_SECONDS);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void tryEncode_isDeferred_whenHashesAreQueued_whileEncodeStillFails() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.upgradeEncoding("old")).thenReturn(true);
+        when(delegate.encode("password")).thenReturn("new");
+        when(delegate.matches(any(), any())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return true;
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder = new OffloadingPasswordEncoder(delegate, 1, 1, registry);
+
+        // upgradeEncoding ne laisse aucun état : un encode ultérieur n'en dépend pas
+        assertThat(encoder.upgradeEncoding("old")).isTrue();
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> encoder.matches("a", "a"));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "b"));
+        while (encoder.queuedTasks() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(encoder.tryEncode("password")).isEmpty();
+        assertThrows(ServiceOverloadedException.class, () -> encoder.encode("password"));
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertThat(encoder.tryEncode("password")).contains("new");
+        assertThat(registry.get("yoga.password.hash.upgrade.deferred").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void encode_propagatesDelegateException() {
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode(any())).thenThrow(new IllegalArgumentException("boom"));
+        encoder = new OffloadingPasswordEncoder(delegate, 1, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.encode("password"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RehashingAuthenticationProviderTest {
+
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final OffloadingPasswordEncoder passwordEncoder = mock(OffloadingPasswordEncoder.class);
+    private final UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+    private final RehashingAuthenticationProvider provider =
+            new RehashingAuthenticationProvider(userDetailsService, passwordEncoder, passwordService);
+
+    private final UserDetails user = new User("a@a.com", "old", List.of());
+
+    private Authentication login() {
+        when(userDetailsService.loadUserByUsername("a@a.com")).thenReturn(user);
+        when(passwordEncoder.matches("password", "old")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("old")).thenReturn(true);
+        return provider.authenticate(new UsernamePasswordAuthenticationToken("a@a.com", "password"));
+    }
+
+    @Test
+    void authenticate_rehashesALowerCostHash_whenThePoolIsFree() {
+        when(passwordEncoder.tryEncode("password")).thenReturn(Optional.of("new"));
+        when(passwordService.updatePassword(user, "new")).thenReturn(new User("a@a.com", "new", List.of()));
+
+        assertThat(login().isAuthenticated()).isTrue();
+
+        verify(passwordService).updatePassword(user, "new");
+        verify(passwordEncoder, never()).encode("password");
+    }
+
+    @Test
+    void authenticate_keepsTheCurrentHash_andSucceeds_whenThePoolIsBusy() {
+        when(passwordEncoder.tryEncode("password")).thenReturn(Optional.empty());
+
+        assertThat(login().isAuthenticated()).isTrue();
+
+        verify(passwordService, never()).updatePassword(any(), any());
+        verify(passwordEncoder, never()).encode("password");
+    }
+}
@@ -0,0 +1,125 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AuthTokenFilterTest {
+
+    private JwtUtils jwtUtils;
+    private JwtTokenCache jwtTokenCache;
+    private UserDetailsServiceImpl userDetailsService;
+    private TokenRevocationList tokenRevocationList;
+    private SimpleMeterRegistry meterRegistry;
+    private AuthTokenFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = JwtUtilsTest.newJwtUtils(JwtUtilsTest.SECRET, 60_000);
+        jwtTokenCache = new JwtTokenCache(jwtUtils, 100, 60_000);
+        userDetailsService = mock(UserDetailsServiceImpl.class);
+        tokenRevocationList = mock(TokenRevocationList.class);
+
+        filter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(filter, "jwtTokenCache", jwtTokenCache);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(filter, "trustClaims", true);
+        meterRegistry = new SimpleMeterRegistry();
+        filter.setMeterRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication filterWithToken(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void doFilter_buildsPrincipalFromClaims_withoutLoadingUser() throws Exception {
+        String token = jwtUtils.generateJwtToken(JwtUtilsTest.authentication("a@a.com"));
+
+        Authentication authentication = filterWithToken(token);
+
+        assertThat(authentication).isNotNull();
+        UserDetailsImpl principal = (UserDetailsImpl) authentication.getPrincipal();
+        assertThat(principal.getId()).isEqualTo(1L);
+        assertThat(principal.getUsername()).isEqualTo("a@a.com");
+        assertThat(principal.getPassword()).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void doFilter_loadsUser_whenClaimsAreNotTrusted() throws Exception {
+        ReflectionTestUtils.setField(filter, "trustClaims", false);
+        UserDetailsImpl loaded = UserDetailsImpl.builder().id(1L).username("a@a.com").build();
+        when(userDetailsService.loadUserByUsername("a@a.com")).thenReturn(loaded);
+        String token = jwtUtils.generateJwtToken(JwtUtilsTest.authentication("a@a.com"));
+
+        Authentication authentication = filterWithToken(token);
+
+        assertThat(authentication.getPrincipal()).isSameAs(loaded);
+    }
+
+    @Test
+    void doFilter_rejectsRevokedTokens_evenWhenCached() throws Exception {
+        String token = jwtUtils.generateJwtToken(JwtUtilsTest.authentication("a@a.com"));
+        assertThat(filterWithToken(token)).isNotNull();
+        SecurityContextHolder.clearContext();
+
+        when(tokenRevocationList.isRevoked(eq(1L), any())).thenReturn(true);
+
+        assertThat(filterWithToken(token)).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void doFilter_ignoresRefreshTokens() throws Exception {
+        UserDetailsImpl principal = (UserDetailsImpl) JwtUtilsTest.authentication("a@a.com").getPrincipal();
+        String refreshToken = jwtUtils.generateRefreshToken(principal, "jti", new Date(System.currentTimeMillis() + 60_000));
+
+        assertThat(filterWithToken(refreshToken)).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void doFilter_leavesContextEmpty_whenTokenMissingOrInvalid() throws Exception {
+        assertThat(filterWithToken(null)).isNull();
+        assertThat(filterWithToken("not-a-jwt")).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void doFilter_timesVerificationByResult_onlyWhenATokenIsPresent() throws Exception {
+        String token = jwtUtils.generateJwtToken(JwtUtilsTest.authentication("a@a.com"));
+
+        filterWithToken(token);
+        filterWithToken("not-a-jwt");
+        filterWithToken(null);
+
+        assertThat(meterRegistry.get("yoga.jwt.verification").tag("result", "valid").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("yoga.jwt.verification").tag("result", "invalid").timer().count()).isEqualTo(1);
+    }
+}
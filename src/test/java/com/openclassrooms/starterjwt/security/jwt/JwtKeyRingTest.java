@@ -0,0 +1,136 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.openclassrooms.starterjwt.security.jwt.JwtUtilsTest.SECRET;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtKeyRingTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void rotate_keepsRetiredKeysForTheRetention_thenDropsThem() {
+        Clock clock = mock(Clock.class);
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", null, null, Duration.ofHours(1), clock);
+        String first = keyRing.current().kid();
+
+        when(clock.instant()).thenReturn(NOW);
+        keyRing.rotate();
+        String second = keyRing.current().kid();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(keyRing.find(first)).isNotNull();
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(61)));
+        keyRing.rotate();
+
+        assertThat(keyRing.find(first)).isNull();
+        assertThat(keyRing.find(second)).isNotNull();
+    }
+
+    @Test
+    void jwks_publishesOnlyPublicKeys() {
+        JwtKeyRing keyRing = JwtKeyRing.generated("EdDSA", Duration.ofHours(1));
+        keyRing.rotate();
+
+        JwkSet jwks = Jwks.setParser().build().parse(keyRing.jwks());
+
+        assertThat(jwks.getKeys()).hasSize(2);
+        assertThat(jwks.getKeys()).allSatisfy(jwk -> {
+            assertThat(jwk.getId()).isNotBlank();
+            assertThat(jwk.getAlgorithm()).isEqualTo("EdDSA");
+            assertThat(jwk.toKey()).isInstanceOf(PublicKey.class);
+        });
+        assertThat(keyRing.jwks()).doesNotContain("\"d\"");
+    }
+
+    @Test
+    void hmac_hasNoKeyId_andNothingToPublish() {
+        JwtKeyRing keyRing = JwtKeyRing.hmac(SECRET);
+        keyRing.rotate();
+
+        assertThat(keyRing.current().kid()).isNull();
+        assertThat(keyRing.find(null)).isSameAs(keyRing.current());
+        assertThat(keyRing.jwks()).isEqualTo("{\"keys\":[]}");
+    }
+
+    @Test
+    void constructor_requiresAKeyStoreForAsymmetricAlgorithms_unlessGeneratedKeysAreAllowed() {
+        assertThatThrownBy(() -> new JwtKeyRing("ES256", SECRET, "", "", false, "", 900_000, 2_592_000_000L))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("oc.app.jwtKeyStore");
+
+        assertThat(new JwtKeyRing("HS512", SECRET, "", "", false, "", 900_000, 2_592_000_000L).current().kid()).isNull();
+        assertThat(new JwtKeyRing("EdDSA", SECRET, "", "", true, "", 900_000, 2_592_000_000L).current().kid()).isNotNull();
+    }
+
+    @Test
+    void constructor_rejectsMissingSecretAndUnknownAlgorithm() {
+        assertThatThrownBy(() -> JwtKeyRing.hmac(""))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> JwtKeyRing.generated("RS256", Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void find_acceptsKeyIdLessHmacTokens_onlyDuringTheTransition() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        JwtKeyRing withoutTransition = new JwtKeyRing("ES256", SECRET, null, null, Duration.ofDays(30), clock);
+        JwtKeyRing transition = new JwtKeyRing("ES256", SECRET, null, NOW.plus(Duration.ofDays(1)),
+                Duration.ofDays(30), clock);
+
+        assertThat(withoutTransition.find(null)).isNull();
+        assertThat(transition.find(null)).isNotNull();
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofDays(1)));
+        assertThat(transition.find(null)).isNull();
+    }
+
+    @Test
+    void constructor_rejectsATransitionLongerThanTheRetention_orWithoutSecret() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+
+        assertThatThrownBy(() -> new JwtKeyRing("ES256", SECRET, null, NOW.plus(Duration.ofDays(31)),
+                Duration.ofDays(30), clock))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("oc.app.jwtLegacyAcceptUntil");
+        assertThatThrownBy(() -> new JwtKeyRing("ES256", null, null, NOW.plus(Duration.ofDays(1)),
+                Duration.ofDays(30), clock))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("oc.app.jwtSecret");
+    }
+
+    @Test
+    void checked_rejectsKeysThatDoNotMatchTheAlgorithm() {
+        KeyPair ed25519 = Jwks.CRV.Ed25519.keyPair().build();
+        KeyPair p256 = Jwts.SIG.ES256.keyPair().build();
+        KeyPair otherP256 = Jwts.SIG.ES256.keyPair().build();
+        Path path = Path.of("keys.p12");
+
+        assertThatThrownBy(() -> JwtKeyRing.checked(path, new JwtKeyRing.SigningKey("ed", ed25519.getPrivate(),
+                ed25519.getPublic(), JwtKeyRing.algorithm("ES256"), null)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("'ed'");
+        assertThatThrownBy(() -> JwtKeyRing.checked(path, new JwtKeyRing.SigningKey("mixed", p256.getPrivate(),
+                otherP256.getPublic(), JwtKeyRing.algorithm("ES256"), null)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(JwtKeyRing.checked(path, new JwtKeyRing.SigningKey("ok", p256.getPrivate(), p256.getPublic(),
+                JwtKeyRing.algorithm("ES256"), null)).kid()).isEqualTo("ok");
+    }
+}
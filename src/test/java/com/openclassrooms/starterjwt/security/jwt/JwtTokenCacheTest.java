@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.openclassrooms.starterjwt.security.jwt.JwtUtilsTest.SECRET;
+import static com.openclassrooms.starterjwt.security.jwt.JwtUtilsTest.authentication;
+import static com.openclassrooms.starterjwt.security.jwt.JwtUtilsTest.newJwtUtils;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class JwtTokenCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = spy(newJwtUtils(SECRET, 60_000));
+    }
+
+    @Test
+    void verify_skipsSignatureCheck_onSecondCall() {
+        JwtTokenCache cache = new JwtTokenCache(jwtUtils, 100, 60_000, Runnable::run, ticker);
+        String token = jwtUtils.generateJwtToken(authentication("a@a.com"));
+
+        VerifiedToken first = cache.verify(token);
+        VerifiedToken second = cache.verify(token);
+
+        assertThat(first.subject()).isEqualTo("a@a.com");
+        assertThat(second).isSameAs(first);
+        verify(jwtUtils, times(1)).parseJwtClaims(token);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void verify_exposesPrincipalClaims() {
+        JwtTokenCache cache = new JwtTokenCache(jwtUtils, 100, 60_000, Runnable::run, ticker);
+        String token = jwtUtils.generateJwtToken(authentication("a@a.com"));
+
+        VerifiedToken verified = cache.verify(token);
+
+        assertThat(verified.hasPrincipalClaims()).isTrue();
+        assertThat(verified.userId()).isEqualTo(1L);
+        assertThat(verified.firstName()).isEqualTo("John");
+        assertThat(verified.lastName()).isEqualTo("Doe");
+        assertThat(verified.admin()).isFalse();
+    }
+
+    @Test
+    void verify_doesNotCacheInvalidTokens() {
+        JwtTokenCache cache = new JwtTokenCache(jwtUtils, 100, 60_000, Runnable::run, ticker);
+
+        assertThat(cache.verify("not-a-jwt")).isNull();
+        assertThat(cache.verify("not-a-jwt")).isNull();
+
+        verify(jwtUtils, times(2)).parseJwtClaims("not-a-jwt");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void verify_honoursTokenExpiration() {
+        JwtTokenCache cache = new JwtTokenCache(jwtUtils, 100, 60_000, Runnable::run, ticker);
+        String token = jwtUtils.generateJwtToken(authentication("a@a.com"));
+
+        assertThat(cache.verify(token)).isNotNull();
+
+        // le token expire au plus tard 60s après sa création : l'entrée ne doit plus être servie après
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        cache.verify(token);
+
+        verify(jwtUtils, times(2)).parseJwtClaims(token);
+    }
+
+    @Test
+    void verify_evictsBeyondMaximumSize() {
+        JwtTokenCache cache = new JwtTokenCache(jwtUtils, 1, 60_000, Runnable::run, ticker);
+
+        cache.verify(jwtUtils.generateJwtToken(authentication("a@a.com")));
+        cache.verify(jwtUtils.generateJwtToken(authentication("b@b.com")));
+        cache.verify(jwtUtils.generateJwtToken(authentication("c@c.com")));
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.stats().evictionCount()).isEqualTo(2);
+    }
+}
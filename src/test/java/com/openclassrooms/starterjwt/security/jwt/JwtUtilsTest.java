@@ -0,0 +1,133 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTest {
+
+    static final String SECRET = "cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce"
+            + "47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e";
+
+    private JwtUtils jwtUtils;
+
+    static JwtUtils newJwtUtils(String secret, int expirationMs) {
+        return newJwtUtils(JwtKeyRing.hmac(secret), expirationMs);
+    }
+
+    static JwtUtils newJwtUtils(JwtKeyRing keyRing, int expirationMs) {
+        JwtUtils utils = new JwtUtils();
+        ReflectionTestUtils.setField(utils, "keyRing", keyRing);
+        ReflectionTestUtils.setField(utils, "jwtExpirationMs", expirationMs);
+        utils.init();
+        return utils;
+    }
+
+    static UsernamePasswordAuthenticationToken authentication(String email) {
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L).username(email).firstName("John").lastName("Doe").admin(false).build();
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = newJwtUtils(SECRET, 60_000);
+    }
+
+    @Test
+    void parseJwtClaims_returnsSubject_forTokenItGenerated() {
+        String token = jwtUtils.generateJwtToken(authentication("a@a.com"));
+
+        Claims claims = jwtUtils.parseJwtClaims(token);
+
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("a@a.com");
+        assertThat(claims.getExpiration()).isAfter(claims.getIssuedAt());
+        assertThat(jwtUtils.validateJwtToken(token)).isTrue();
+        assertThat(jwtUtils.getUserNameFromJwtToken(token)).isEqualTo("a@a.com");
+    }
+
+    @Test
+    void parseJwtClaims_returnsNull_whenSignedWithAnotherSecret() {
+        JwtUtils other = newJwtUtils(SECRET.replace('c', 'd'), 60_000);
+        String token = other.generateJwtToken(authentication("a@a.com"));
+
+        assertThat(jwtUtils.parseJwtClaims(token)).isNull();
+        assertThat(jwtUtils.validateJwtToken(token)).isFalse();
+    }
+
+    @Test
+    void parseJwtClaims_returnsNull_whenExpired() {
+        JwtUtils expired = newJwtUtils(SECRET, -1_000);
+        String token = expired.generateJwtToken(authentication("a@a.com"));
+
+        assertThat(jwtUtils.parseJwtClaims(token)).isNull();
+    }
+
+    @Test
+    void parseJwtClaims_returnsNull_whenMalformedOrEmpty() {
+        assertThat(jwtUtils.parseJwtClaims("not-a-jwt")).isNull();
+        assertThat(jwtUtils.parseJwtClaims("")).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ES256", "EdDSA"})
+    void parseJwtClaims_verifiesAsymmetricTokens_byKeyId(String algorithm) {
+        JwtKeyRing keyRing = JwtKeyRing.generated(algorithm, Duration.ofHours(1));
+        JwtUtils asymmetric = newJwtUtils(keyRing, 60_000);
+
+        String token = asymmetric.generateJwtToken(authentication("a@a.com"));
+
+        assertThat(asymmetric.parseJwtClaims(token).getSubject()).isEqualTo("a@a.com");
+        assertThat(Jwts.parser().keyLocator(keyRing.keyLocator()).build().parseSignedClaims(token).getHeader().getKeyId())
+                .isEqualTo(keyRing.current().kid());
+        // la clé publique seule suffit à vérifier
+        assertThat(Jwts.parser().verifyWith(keyRing.current().publicKey()).build()
+                .parseSignedClaims(token).getPayload().getSubject()).isEqualTo("a@a.com");
+    }
+
+    @Test
+    void parseJwtClaims_acceptsTokensOfRetiredKeys_andRejectsUnknownKeys() {
+        JwtKeyRing keyRing = JwtKeyRing.generated("ES256", Duration.ofHours(1));
+        JwtUtils asymmetric = newJwtUtils(keyRing, 60_000);
+        String beforeRotation = asymmetric.generateJwtToken(authentication("a@a.com"));
+
+        keyRing.rotate();
+
+        assertThat(asymmetric.parseJwtClaims(beforeRotation)).isNotNull();
+        assertThat(asymmetric.parseJwtClaims(asymmetric.generateJwtToken(authentication("a@a.com")))).isNotNull();
+        String foreign = newJwtUtils(JwtKeyRing.generated("ES256", Duration.ZERO), 60_000)
+                .generateJwtToken(authentication("a@a.com"));
+        assertThat(asymmetric.parseJwtClaims(foreign)).isNull();
+    }
+
+    @Test
+    void parseJwtClaims_acceptsLegacyHmacTokens_onlyWithoutKeyId() {
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", SECRET, null, Instant.now().plus(Duration.ofMinutes(30)),
+                Duration.ofHours(1), Clock.systemUTC());
+        JwtUtils asymmetric = newJwtUtils(keyRing, 60_000);
+
+        assertThat(asymmetric.parseJwtClaims(jwtUtils.generateJwtToken(authentication("a@a.com")))).isNotNull();
+
+        // HS512 signé avec la clé publique comme secret, sous le kid de la clé courante
+        String confused = Jwts.builder().header().keyId(keyRing.current().kid()).and()
+                .subject("a@a.com")
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), Jwts.SIG.HS512)
+                .compact();
+        assertThat(asymmetric.parseJwtClaims(confused)).isNull();
+    }
+}
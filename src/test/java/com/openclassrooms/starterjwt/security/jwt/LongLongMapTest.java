@@ -0,0 +1,58 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongLongMapTest {
+
+    @Test
+    void get_returnsMissing_onEmptyMap() {
+        assertThat(LongLongMap.EMPTY.get(42L, -1L)).isEqualTo(-1L);
+        assertThat(LongLongMap.EMPTY.size()).isZero();
+    }
+
+    @Test
+    void with_returnsNewMap_andReplacesExistingValue() {
+        LongLongMap one = LongLongMap.EMPTY.with(1L, 10L);
+        LongLongMap replaced = one.with(1L, 20L).with(2L, 30L);
+
+        assertThat(one.get(1L, -1L)).isEqualTo(10L);
+        assertThat(one.get(2L, -1L)).isEqualTo(-1L);
+        assertThat(replaced.get(1L, -1L)).isEqualTo(20L);
+        assertThat(replaced.get(2L, -1L)).isEqualTo(30L);
+        assertThat(replaced.size()).isEqualTo(2);
+    }
+
+    @Test
+    void of_matchesHashMap_forManyRandomKeys() {
+        Random random = new Random(42);
+        Map<Long, Long> expected = new HashMap<>();
+        long[] keys = new long[5_000];
+        long[] values = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 1 + random.nextInt(10_000);
+            values[i] = random.nextLong();
+            expected.put(keys[i], values[i]);
+        }
+
+        LongLongMap map = LongLongMap.of(keys, values);
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertThat(map.get(key, Long.MIN_VALUE)).isEqualTo(expected.getOrDefault(key, Long.MIN_VALUE));
+        }
+    }
+
+    @Test
+    void keyZero_isReserved() {
+        assertThrows(IllegalArgumentException.class, () -> LongLongMap.EMPTY.with(0L, 1L));
+        assertThrows(IllegalArgumentException.class, () -> LongLongMap.of(new long[]{0L}, new long[]{1L}));
+        assertThat(LongLongMap.EMPTY.with(1L, 1L).get(0L, -1L)).isEqualTo(-1L);
+    }
+}
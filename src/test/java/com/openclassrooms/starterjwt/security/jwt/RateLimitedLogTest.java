@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitedLogTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final RateLimitedLog log = new RateLimitedLog(2, 1_000, now::get);
+
+    @Test
+    void acquire_allowsPermitsPerWindow_thenReportsSuppressedCount() {
+        assertThat(log.acquire("signature")).isZero();
+        assertThat(log.acquire("signature")).isZero();
+        assertThat(log.acquire("signature")).isEqualTo(-1);
+        assertThat(log.acquire("signature")).isEqualTo(-1);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(log.acquire("signature")).isEqualTo(2);
+        assertThat(log.acquire("signature")).isZero();
+        assertThat(log.acquire("signature")).isEqualTo(-1);
+    }
+
+    @Test
+    void acquire_limitsEachCategoryIndependently() {
+        log.acquire("expired");
+        log.acquire("expired");
+        assertThat(log.acquire("expired")).isEqualTo(-1);
+
+        assertThat(log.acquire("malformed")).isZero();
+    }
+}
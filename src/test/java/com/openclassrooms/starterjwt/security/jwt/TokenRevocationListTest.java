@@ -0,0 +1,82 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.models.TokenRevocation;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationListTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00.500Z");
+
+    private TokenRevocationRepository tokenRevocationRepository;
+    private RefreshTokenRepository refreshTokenRepository;
+    private TokenRevocationList list;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationRepository = mock(TokenRevocationRepository.class);
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        list = new TokenRevocationList(tokenRevocationRepository, refreshTokenRepository, 900_000,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void revokeAll_rejectsTokensIssuedUpToNow_andPersists() {
+        list.revokeAll(7L);
+
+        assertThat(list.isRevoked(7L, NOW.minusSeconds(60).toEpochMilli())).isTrue();
+        // "iat" est à la seconde : un token de la même seconde est refusé, le suivant est accepté
+        assertThat(list.isRevoked(7L, NOW.toEpochMilli())).isTrue();
+        assertThat(list.isRevoked(7L, NOW.plusSeconds(1).toEpochMilli())).isFalse();
+        assertThat(list.isRevoked(8L, NOW.minusSeconds(60).toEpochMilli())).isFalse();
+        assertThat(list.isRevoked(null, null)).isFalse();
+
+        verify(tokenRevocationRepository).save(new TokenRevocation(7L, NOW.getEpochSecond()));
+        verify(refreshTokenRepository).deleteByUserId(7L);
+    }
+
+    @Test
+    void revokeAll_insideTransaction_appliesInMemoryOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            list.revokeAll(7L);
+            list.revokeAll(8L);
+
+            assertThat(list.isRevoked(7L, NOW.minusSeconds(60).toEpochMilli())).isFalse();
+            verify(tokenRevocationRepository).save(new TokenRevocation(7L, NOW.getEpochSecond()));
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCommit();
+            synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(list.isRevoked(7L, NOW.minusSeconds(60).toEpochMilli())).isTrue();
+        assertThat(list.isRevoked(8L, NOW.minusSeconds(60).toEpochMilli())).isFalse();
+    }
+
+    @Test
+    void reload_restoresPersistedRevocations_andPurgesExpiredOnes() {
+        when(tokenRevocationRepository.findAll()).thenReturn(List.of(new TokenRevocation(3L, NOW.getEpochSecond() - 10)));
+
+        list.reload();
+
+        assertThat(list.size()).isEqualTo(1);
+        assertThat(list.isRevoked(3L, NOW.minusSeconds(20).toEpochMilli())).isTrue();
+        assertThat(list.isRevoked(3L, NOW.toEpochMilli())).isFalse();
+        verify(tokenRevocationRepository).deleteOlderThan(NOW.getEpochSecond() - 900);
+    }
+}
@@ -1,6 +1,5 @@
 package com.openclassrooms.starterjwt.services;
 
-import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
@@ -16,8 +15,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.Optional;
-
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -28,6 +25,7 @@ class AuthServiceTest {
     @Mock JwtUtils jwtUtils;
     @Mock PasswordEncoder passwordEncoder;
     @Mock UserRepository userRepository;
+    @Mock RefreshTokenService refreshTokenService;
 
     @InjectMocks AuthService authService;
 
@@ -69,13 +67,13 @@ class AuthServiceTest {
     }
 
     @Test
-    void login_shouldReturnJwtResponse_withAdminFromDb() {
+    void login_shouldReturnJwtResponse_withAdminFromPrincipal() {
         LoginRequest req = new LoginRequest();
         req.setEmail("a@a.com");
         req.setPassword("password");
 
         UserDetailsImpl principal = UserDetailsImpl.builder()
-                .id(1L).username("a@a.com").firstName("John").lastName("Doe").build();
+                .id(1L).username("a@a.com").firstName("John").lastName("Doe").admin(true).build();
 
         Authentication auth = mock(Authentication.class);
         when(auth.getPrincipal()).thenReturn(principal);
@@ -84,14 +82,14 @@ class AuthServiceTest {
                 .thenReturn(auth);
 
         when(jwtUtils.generateJwtToken(auth)).thenReturn("JWT");
-        when(userRepository.findByEmail("a@a.com")).thenReturn(Optional.of(
-                new User("a@a.com", "Doe", "John", "ENC", true)
-        ));
+        when(refreshTokenService.issue(principal)).thenReturn("REFRESH");
 
         JwtResponse resp = authService.login(req);
 
         assertEquals("JWT", resp.getToken());
+        assertEquals("REFRESH", resp.getRefreshToken());
         assertEquals(1L, resp.getId());
         assertTrue(Boolean.TRUE.equals(resp.getAdmin()));
+        verify(userRepository, never()).findByEmail(any());
     }
 }
\ No newline at end of file
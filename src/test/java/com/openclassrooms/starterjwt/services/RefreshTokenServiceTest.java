@@ -0,0 +1,130 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.JwtResponse;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.UserView;
+import com.openclassrooms.starterjwt.security.jwt.JwtKeyRing;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    static final String SECRET = "cf83e1357eefb8bdf1542850d66d8007d620e4050b5715dc83f4a921d36ce9ce"
+            + "47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e";
+
+    @Mock RefreshTokenRepository refreshTokenRepository;
+    @Mock UserRepository userRepository;
+
+    JwtUtils jwtUtils;
+    RefreshTokenService refreshTokenService;
+
+    final UserDetailsImpl principal = UserDetailsImpl.builder()
+            .id(1L).username("a@a.com").firstName("John").lastName("Doe").admin(true).build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "keyRing", JwtKeyRing.hmac(SECRET));
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", 600_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userRepository, jwtUtils);
+    }
+
+    @Test
+    void issue_shouldStoreOnlyTheHashOfTheTokenId() {
+        when(userRepository.getReferenceById(1L)).thenReturn(new User().setId(1L));
+
+        String token = refreshTokenService.issue(principal);
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        String jti = jwtUtils.parseJwtClaims(token).getId();
+        assertArrayEquals(RefreshTokenService.hash(jti), saved.getValue().getTokenHash());
+        assertEquals(32, saved.getValue().getTokenHash().length);
+        assertTrue(saved.getValue().getExpiresAt().isAfter(LocalDateTime.now().plusMinutes(9)));
+        assertEquals(JwtUtils.TYPE_REFRESH, jwtUtils.parseJwtClaims(token).get(JwtUtils.CLAIM_TYPE, String.class));
+    }
+
+    @Test
+    void refresh_shouldRotate_withTheCurrentUserRow() {
+        when(userRepository.getReferenceById(1L)).thenReturn(new User().setId(1L));
+        String token = refreshTokenService.issue(principal);
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(1);
+        // renommé et rétrogradé depuis l'émission du refresh token
+        when(userRepository.findViewById(1L)).thenReturn(Optional.of(
+                new UserView(1L, "b@b.com", "Smith", "Jane", false, LocalDateTime.now(), LocalDateTime.now())));
+
+        JwtResponse response = refreshTokenService.refresh(token);
+
+        assertEquals(1L, response.getId());
+        assertEquals("b@b.com", response.getUsername());
+        assertEquals("Jane", response.getFirstName());
+        assertFalse(response.getAdmin());
+        assertFalse(jwtUtils.parseJwtClaims(response.getToken()).get(JwtUtils.CLAIM_ADMIN, Boolean.class));
+        assertFalse(jwtUtils.parseJwtClaims(response.getRefreshToken()).get(JwtUtils.CLAIM_ADMIN, Boolean.class));
+        assertNull(jwtUtils.parseJwtClaims(response.getToken()).get(JwtUtils.CLAIM_TYPE));
+        assertNotEquals(token, response.getRefreshToken());
+        verify(refreshTokenRepository).consume(eq(RefreshTokenService.hash(jwtUtils.parseJwtClaims(token).getId())), any());
+        verify(refreshTokenRepository, times(2)).save(any());
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void refresh_shouldFail_whenTheUserIsGone() {
+        when(userRepository.getReferenceById(1L)).thenReturn(new User().setId(1L));
+        String token = refreshTokenService.issue(principal);
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(1);
+        when(userRepository.findViewById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(SecurityException.class, () -> refreshTokenService.refresh(token));
+
+        verify(refreshTokenRepository, times(1)).save(any());
+    }
+
+    @Test
+    void refresh_shouldRevokeAllTokens_whenTokenReused() {
+        when(userRepository.getReferenceById(1L)).thenReturn(new User().setId(1L));
+        String token = refreshTokenService.issue(principal);
+        when(refreshTokenRepository.consume(any(), any())).thenReturn(0);
+
+        assertThrows(SecurityException.class, () -> refreshTokenService.refresh(token));
+
+        verify(refreshTokenRepository).deleteByUserId(1L);
+    }
+
+    @Test
+    void refresh_shouldRejectAccessTokensAndGarbage() {
+        String accessToken = jwtUtils.generateJwtToken(principal);
+
+        assertThrows(SecurityException.class, () -> refreshTokenService.refresh(accessToken));
+        assertThrows(SecurityException.class, () -> refreshTokenService.refresh("not-a-jwt"));
+        verifyNoInteractions(refreshTokenRepository);
+    }
+
+    @Test
+    void deleteExpired_shouldDeleteInBatches_untilAPartialBatch() {
+        when(refreshTokenRepository.deleteExpired(any(), eq(RefreshTokenService.CLEANUP_BATCH_SIZE)))
+                .thenReturn(RefreshTokenService.CLEANUP_BATCH_SIZE, RefreshTokenService.CLEANUP_BATCH_SIZE, 3);
+
+        assertEquals(2 * RefreshTokenService.CLEANUP_BATCH_SIZE + 3, refreshTokenService.deleteExpired());
+        verify(refreshTokenRepository, times(3)).deleteExpired(any(), anyInt());
+    }
+}
@@ -2,14 +2,27 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.ParticipationBatchRequest;
+import com.openclassrooms.starterjwt.payload.request.ParticipationBatchRequest.Participation;
+import com.openclassrooms.starterjwt.payload.response.ParticipationBatchResponse;
+import com.openclassrooms.starterjwt.payload.response.ParticipationBatchResponse.ParticipationResult;
+import com.openclassrooms.starterjwt.payload.response.ParticipationBatchResponse.ParticipationStatus;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionView;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,52 +36,283 @@ class SessionServiceTest {
     @InjectMocks SessionService sessionService;
 
     @Test
-    void participate_shouldAddUser_andSave() {
-        Session session = new Session().setId(1L).setUsers(new ArrayList<>());
-        User user = new User().setId(2L);
-
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
+    void participate_shouldLockSession_thenInsertSingleRow() {
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Session().setId(1L)));
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(1);
 
         sessionService.participate(1L, 2L);
 
-        assertEquals(1, session.getUsers().size());
-        verify(sessionRepository).save(session);
+        InOrder inOrder = inOrder(sessionRepository);
+        inOrder.verify(sessionRepository).findByIdForUpdate(1L);
+        inOrder.verify(sessionRepository).addParticipant(1L, 2L);
+        inOrder.verify(sessionRepository).touch(eq(List.of(1L)), any());
+        verify(sessionRepository, never()).isParticipant(any(), any());
     }
 
     @Test
-    void participate_shouldThrow404_whenSessionMissing() {
-        when(sessionRepository.findById(1L)).thenReturn(Optional.empty());
-        when(userRepository.findById(2L)).thenReturn(Optional.of(new User().setId(2L)));
+    void participate_shouldThrow404_whenSessionOrUserMissing() {
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
 
-        assertThrows(ResponseStatusException.class, () -> sessionService.participate(1L, 2L));
-        verify(sessionRepository, never()).save(any());
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> sessionService.participate(1L, 2L));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        verify(sessionRepository, never()).addParticipant(any(), any());
+
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Session().setId(1L)));
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(0);
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        ex = assertThrows(ResponseStatusException.class, () -> sessionService.participate(1L, 2L));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+        verify(sessionRepository, never()).touch(any(), any());
     }
 
     @Test
     void participate_shouldThrow400_whenAlreadyParticipating() {
-        User user = new User().setId(2L);
-        Session session = new Session().setId(1L).setUsers(new ArrayList<>());
-        session.getUsers().add(user);
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Session().setId(1L)));
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(0);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(sessionRepository.isParticipant(1L, 2L)).thenReturn(true);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> sessionService.participate(1L, 2L));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
 
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(user));
+    @Test
+    void participate_shouldThrow409_whenSessionFull() {
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Session().setId(1L).setCapacity(1)));
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(0);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(sessionRepository.isParticipant(1L, 2L)).thenReturn(false);
 
-        assertThrows(ResponseStatusException.class, () -> sessionService.participate(1L, 2L));
-        verify(sessionRepository, never()).save(any());
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> sessionService.participate(1L, 2L));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
     }
 
     @Test
-    void noLongerParticipate_shouldRemoveUser_andSave() {
-        User user = new User().setId(2L);
-        Session session = new Session().setId(1L).setUsers(new ArrayList<>());
-        session.getUsers().add(user);
+    void participate_shouldThrow400_whenUniqueConstraintViolated() {
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Session().setId(1L)));
+        when(sessionRepository.addParticipant(1L, 2L)).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> sessionService.participate(1L, 2L));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
 
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+    @Test
+    void noLongerParticipate_shouldDeleteSingleRow() {
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(1);
 
         sessionService.noLongerParticipate(1L, 2L);
 
-        assertTrue(session.getUsers().isEmpty());
-        verify(sessionRepository).save(session);
+        verify(sessionRepository).removeParticipant(1L, 2L);
+        verify(sessionRepository, never()).existsById(any());
+    }
+
+    @Test
+    void noLongerParticipate_shouldThrow404_orThrow400_whenNothingDeleted() {
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(0);
+
+        when(sessionRepository.existsById(1L)).thenReturn(false);
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> sessionService.noLongerParticipate(1L, 2L));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        ex = assertThrows(ResponseStatusException.class, () -> sessionService.noLongerParticipate(1L, 2L));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void findPage_shouldReturnNextCursor_whenMoreRowsThanLimit() {
+        ReflectionTestUtils.setField(sessionService, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionService, "maxPageSize", 2);
+        SessionView s1 = view(1L, 1000);
+        SessionView s2 = view(2L, 2000);
+        SessionView s3 = view(3L, 3000);
+
+        when(sessionRepository.findViews(any(Specification.class), any(), eq(3))).thenReturn(new ArrayList<>(List.of(s1, s2, s3)));
+
+        // limit 50 est ramené au maximum configuré (2)
+        SessionPage page = sessionService.findPage(null, 50, null, null, null);
+
+        assertEquals(List.of(s1, s2), page.sessions());
+        SessionCursor next = SessionCursor.decode(page.nextCursor());
+        assertEquals(2L, next.id());
+        assertEquals(2000L, next.date().getTime());
+    }
+
+    @Test
+    void findPage_shouldReturnNoCursor_onLastPage() {
+        ReflectionTestUtils.setField(sessionService, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionService, "maxPageSize", 100);
+        SessionView s1 = view(1L, 1000);
+
+        when(sessionRepository.findViews(any(Specification.class), any(), eq(21))).thenReturn(List.of(s1));
+
+        String cursor = new SessionCursor(new Date(500), 9L).encode();
+        SessionPage page = sessionService.findPage(cursor, null, new Date(0), new Date(5000), 3L);
+
+        assertEquals(List.of(s1), page.sessions());
+        assertNull(page.nextCursor());
+    }
+
+    private static SessionView view(Long id, long date) {
+        return new SessionView(id, "Yoga", new Date(date), "Relax", null, 1L, null, null);
+    }
+
+    @Test
+    void findPage_shouldRejectInvalidCursorOrLimit() {
+        ReflectionTestUtils.setField(sessionService, "maxPageSize", 100);
+
+        assertThrows(IllegalArgumentException.class, () -> sessionService.findPage("%%%", 10, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> sessionService.findPage(null, 0, null, null, null));
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    void findParticipantIds_shouldExposeArraysAsLists() {
+        when(sessionRepository.findParticipantIdArrays(List.of(1L, 2L))).thenReturn(Map.of(
+                1L, new long[]{10L, 11L}, 2L, new long[]{10L}));
+
+        Map<Long, List<Long>> result = sessionService.findParticipantIds(List.of(1L, 2L));
+
+        assertEquals(Map.of(1L, List.of(10L, 11L), 2L, List.of(10L)), result);
+        assertThrows(UnsupportedOperationException.class, () -> result.get(1L).add(12L));
+    }
+
+    private static SessionRepository.ParticipantId participant(Long sessionId, Long userId) {
+        return new SessionRepository.ParticipantId() {
+            @Override
+            public Long getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+
+    @Test
+    void createAll_shouldInsertSessionsThenParticipants_inBatches() {
+        Session s1 = new Session().setName("A").setUsers(new ArrayList<>(List.of(new User().setId(5L), new User().setId(6L))));
+        Session s2 = new Session().setName("B").setUsers(new ArrayList<>());
+        doAnswer(inv -> {
+            List<Session> sessions = inv.getArgument(0);
+            sessions.get(0).setId(1L);
+            sessions.get(1).setId(2L);
+            return null;
+        }).when(sessionRepository).insertSessions(anyList());
+
+        List<Session> created = sessionService.createAll(List.of(s1, s2));
+
+        assertEquals(List.of(1L, 2L), created.stream().map(Session::getId).toList());
+        assertNotNull(s1.getCreatedAt());
+        assertEquals(s1.getCreatedAt(), s2.getUpdatedAt());
+        verify(sessionRepository).insertParticipants(Map.of(1L, List.of(5L, 6L)));
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void createAll_shouldRejectSessionsOverCapacity_listingTheirIndexes() {
+        List<User> users = List.of(new User().setId(5L), new User().setId(6L));
+        List<Session> sessions = List.of(
+                new Session().setName("A").setCapacity(1).setUsers(users),
+                new Session().setName("B").setCapacity(2).setUsers(users),
+                new Session().setName("C").setCapacity(0).setUsers(users));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> sessionService.createAll(sessions));
+
+        assertEquals("Error: Participants exceed capacity for sessions [0, 2]!", e.getMessage());
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    void update_shouldLockSession_copyFields_andWriteOnlyParticipantChanges() {
+        Session existing = new Session().setId(1L).setName("Old");
+        Session changes = new Session().setName("New").setDescription("d").setDate(new Date())
+                .setUsers(List.of(new User().setId(2L), new User().setId(3L)));
+
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(existing));
+        when(sessionRepository.findParticipantIdArrays(List.of(1L))).thenReturn(Map.of(1L, new long[]{1L, 2L}));
+
+        Session updated = sessionService.update(1L, changes);
+
+        assertSame(existing, updated);
+        assertEquals("New", updated.getName());
+        assertNull(updated.getUsers());
+        verify(sessionRepository).removeParticipants(1L, List.of(1L));
+        verify(sessionRepository).insertParticipants(Map.of(1L, List.of(3L)));
+        verify(sessionRepository).touch(eq(List.of(1L)), any());
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Test
+    void update_shouldNotTouchParticipants_whenUnchanged() {
+        when(sessionRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Session().setId(1L)));
+        when(sessionRepository.findParticipantIdArrays(List.of(1L))).thenReturn(Map.of(1L, new long[]{2L}));
+
+        sessionService.update(1L, new Session().setName("New").setUsers(List.of(new User().setId(2L))));
+
+        verify(sessionRepository, never()).removeParticipants(any(), any());
+        verify(sessionRepository, never()).insertParticipants(any());
+        verify(sessionRepository, never()).touch(any(), any());
+    }
+
+    @Test
+    void update_shouldRejectMoreParticipantsThanCapacity_beforeLocking() {
+        Session changes = new Session().setName("New").setCapacity(1)
+                .setUsers(List.of(new User().setId(2L), new User().setId(3L)));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> sessionService.update(1L, changes));
+
+        assertEquals("Error: 2 participants exceed capacity 1!", e.getMessage());
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    void participateAll_shouldReportEachItem_andInsertEnrolledInOneBatch() {
+        ParticipationBatchRequest request = new ParticipationBatchRequest();
+        request.setParticipations(List.of(
+                new Participation(1L, 10L),   // inscrit
+                new Participation(1L, 10L),   // doublon dans le lot
+                new Participation(1L, 11L),   // déjà inscrit
+                new Participation(2L, 10L),   // session complète
+                new Participation(3L, 10L),   // session inconnue
+                new Participation(1L, 99L))); // utilisateur inconnu
+
+        when(sessionRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(
+                new Session().setId(1L), new Session().setId(2L).setCapacity(1)));
+        when(userRepository.findExistingIds(anyCollection())).thenReturn(List.of(10L, 11L));
+        when(sessionRepository.findExistingParticipations(anyCollection(), anyCollection()))
+                .thenReturn(List.of(participant(1L, 11L)));
+        when(sessionRepository.countParticipants(anyCollection())).thenReturn(List.of(participantCount(2L, 1L)));
+
+        ParticipationBatchResponse response = sessionService.participateAll(request);
+
+        assertEquals(List.of(
+                        ParticipationStatus.ENROLLED,
+                        ParticipationStatus.ALREADY_PARTICIPATING,
+                        ParticipationStatus.ALREADY_PARTICIPATING,
+                        ParticipationStatus.SESSION_FULL,
+                        ParticipationStatus.SESSION_NOT_FOUND,
+                        ParticipationStatus.USER_NOT_FOUND),
+                response.getResults().stream().map(ParticipationResult::getStatus).toList());
+        verify(sessionRepository).insertParticipants(Map.of(1L, List.of(10L)));
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    private static SessionRepository.ParticipantCount participantCount(Long sessionId, Long participants) {
+        return new SessionRepository.ParticipantCount() {
+            @Override
+            public Long getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public Long getParticipants() {
+                return participants;
+            }
+        };
     }
-}
\ No newline at end of file
+}
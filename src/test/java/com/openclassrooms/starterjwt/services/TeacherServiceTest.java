@@ -1,10 +1,17 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.mapper.TeacherMapperImpl;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,27 +21,22 @@ import static org.mockito.Mockito.*;
 class TeacherServiceTest {
 
     @Mock TeacherRepository teacherRepository;
+    @Spy TeacherMapper teacherMapper = new TeacherMapperImpl();
+    @Spy ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    @Spy CacheManager cacheManager = new ConcurrentMapCacheManager(TeacherService.TEACHER_CACHE);
     @InjectMocks TeacherService teacherService;
 
     @Test
-    void findAll_shouldReturnAllTeachers() {
-        when(teacherRepository.findAll()).thenReturn(List.of(new Teacher(), new Teacher()));
-
-        List<Teacher> result = teacherService.findAll();
-
-        assertEquals(2, result.size());
-        verify(teacherRepository).findAll();
-    }
-
-    @Test
-    void findById_shouldReturnTeacher_whenExists() {
-        Teacher t = new Teacher().setId(1L);
+    void findById_shouldReturnACopyOfTheCachedDto_whenExists() {
+        Teacher t = new Teacher().setId(1L).setFirstName("John");
         when(teacherRepository.findById(1L)).thenReturn(Optional.of(t));
 
-        Teacher result = teacherService.findById(1L);
+        TeacherDto result = teacherService.findById(1L);
+        result.setFirstName("Changed");
 
-        assertNotNull(result);
         assertEquals(1L, result.getId());
+        assertEquals("John", teacherService.findById(1L).getFirstName());
+        assertNotSame(teacherService.findById(1L), teacherService.findById(1L));
         verify(teacherRepository).findById(1L);
     }
 
@@ -42,9 +44,34 @@ class TeacherServiceTest {
     void findById_shouldReturnNull_whenMissing() {
         when(teacherRepository.findById(1L)).thenReturn(Optional.empty());
 
-        Teacher result = teacherService.findById(1L);
+        TeacherDto result = teacherService.findById(1L);
 
         assertNull(result);
         verify(teacherRepository).findById(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findExistingIds_shouldLoadOnlyCacheMisses_inOneQuery_andCacheDtos() {
+        when(teacherRepository.findAllById(List.of(1L, 2L)))
+                .thenReturn(List.of(new Teacher().setId(1L), new Teacher().setId(2L)));
+        when(teacherRepository.findAllById(List.of(3L, 4L))).thenReturn(List.of(new Teacher().setId(3L)));
+
+        assertEquals(Set.of(1L, 2L), teacherService.findExistingIds(List.of(1L, 2L)));
+        assertEquals(Set.of(1L, 2L, 3L), teacherService.findExistingIds(List.of(1L, 2L, 3L, 4L)));
+
+        verify(teacherRepository).findAllById(List.of(1L, 2L));
+        verify(teacherRepository).findAllById(List.of(3L, 4L));
+        assertInstanceOf(TeacherDto.class, cacheManager.getCache(TeacherService.TEACHER_CACHE).get(1L).get());
+    }
+
+    @Test
+    void findAllAsJson_shouldSerializeDtos() throws Exception {
+        when(teacherRepository.findAll()).thenReturn(List.of(new Teacher().setId(1L).setFirstName("John").setLastName("Doe")));
+
+        JsonSnapshot json = teacherService.findAllAsJson();
+
+        assertEquals("John", objectMapper.readTree(json.body()).get(0).get("firstName").asText());
+        assertEquals(JsonSnapshot.of(json.body()).etag(), json.etag());
+        assertTrue(json.etag().startsWith("\""));
+    }
+}
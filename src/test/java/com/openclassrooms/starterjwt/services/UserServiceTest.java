@@ -2,11 +2,14 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -15,6 +18,7 @@ import static org.mockito.Mockito.*;
 class UserServiceTest {
 
     @Mock UserRepository userRepository;
+    @Mock TokenRevocationList tokenRevocationList;
     @InjectMocks UserService userService;
 
     @Test
@@ -26,6 +30,7 @@ class UserServiceTest {
 
         assertTrue(deleted);
         verify(userRepository).deleteById(10L);
+        verify(tokenRevocationList).revokeAll(10L);
     }
 
     @Test
@@ -35,6 +40,7 @@ class UserServiceTest {
 
         assertThrows(SecurityException.class, () -> userService.deleteIfOwner(10L, "other@test.com"));
         verify(userRepository, never()).deleteById(anyLong());
+        verifyNoInteractions(tokenRevocationList);
     }
 
     @Test
@@ -46,4 +52,13 @@ class UserServiceTest {
         assertFalse(deleted);
         verify(userRepository, never()).deleteById(anyLong());
     }
-}
\ No newline at end of file
+
+    @Test
+    void findExistingIds_shouldQueryOnce_andSkipQuery_whenEmpty() {
+        when(userRepository.findExistingIds(List.of(1L, 2L))).thenReturn(List.of(1L));
+
+        assertEquals(Set.of(1L), userService.findExistingIds(List.of(1L, 2L)));
+        assertTrue(userService.findExistingIds(List.of()).isEmpty());
+        verify(userRepository, times(1)).findExistingIds(anyCollection());
+    }
+}